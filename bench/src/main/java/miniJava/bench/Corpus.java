@@ -0,0 +1,72 @@
+package miniJava.bench;
+
+// Representative miniJava sources of a given size, one per input shape.
+public final class Corpus {
+	public enum Shape {
+		identifiers,	// long identifiers, qualified references
+		comments,		// mostly comments and indentation
+		nested,			// deeply parenthesized expressions
+		classes			// many small class declarations
+	}
+	
+	private Corpus() { }
+	
+	// Generate a valid program of roughly the given size in bytes.
+	public static String generate(Shape shape, int size) {
+		StringBuilder sb = new StringBuilder(size + 1024);
+		int n = 0;
+		while (sb.length() < size) {
+			switch (shape) {
+			case identifiers:
+				identifiers(sb, n);
+				break;
+			case comments:
+				comments(sb, n);
+				break;
+			case nested:
+				nested(sb, n);
+				break;
+			case classes:
+				sb.append("class Small").append(n).append(" { private int value").append(n)
+					.append("; public boolean get() { return value").append(n).append(" > 0; } }\n");
+				break;
+			default:
+			}
+			n += 1;
+		}
+		return sb.toString();
+	}
+	
+	private static void identifiers(StringBuilder sb, int n) {
+		sb.append("class IdentifierHeavyClass_").append(n).append(" {\n");
+		sb.append("\tpublic static void computeEverything_").append(n).append("(ParameterType_a firstParameter, int secondParameter_b) {\n");
+		for (int i = 0; i < 40; ++i) {
+			sb.append("\t\tlocalVariableName_").append(i).append(" = firstParameter.memberField_").append(i)
+				.append(".nestedField_").append(n).append(" + secondParameter_b;\n");
+		}
+		sb.append("\t}\n}\n");
+	}
+	
+	private static void comments(StringBuilder sb, int n) {
+		sb.append("/*\n * Block comment number ").append(n).append(" describing the class below\n")
+			.append(" * in more detail than anybody will ever read.\n */\n");
+		sb.append("class Commented").append(n).append(" {\n");
+		for (int i = 0; i < 10; ++i) {
+			sb.append("        // The field ").append(i).append(" holds a value that is explained here\n")
+				.append("        private int field").append(i).append(";            // trailing comment\n");
+		}
+		sb.append("}\n");
+	}
+	
+	private static void nested(StringBuilder sb, int n) {
+		sb.append("class Nested").append(n).append(" {\n\tint m(int a, int b) {\n\t\treturn ");
+		for (int depth = 0; depth < 40; ++depth) {
+			sb.append("(a * ");
+		}
+		sb.append("b");
+		for (int depth = 0; depth < 40; ++depth) {
+			sb.append(" + ").append(depth).append(") - -b");
+		}
+		sb.append(";\n\t}\n}\n");
+	}
+}
@@ -0,0 +1,208 @@
+package miniJava.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.NodeKind;
+import miniJava.SyntacticAnalyzer.ParallelParser;
+import miniJava.SyntacticAnalyzer.ParseListener;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.PipelinedScanner;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceInput;
+import miniJava.SyntacticAnalyzer.TableParser;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+// Parse throughput, from a pre-scanned token buffer and end to end from bytes.
+//  Run with -prof gc for allocation per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({ "identifiers", "comments", "nested", "classes" })
+	public String shape;
+	
+	@Param({ "256" })
+	public int kilobytes;
+	
+	private byte[] _source;
+	private TokenBuffer _tokens;
+	
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput {
+		public long bytes;
+		public long tokens;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.bytes = 0;
+			this.tokens = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		this._source = Corpus.generate(Corpus.Shape.valueOf(this.shape), this.kilobytes * 1024).getBytes(StandardCharsets.US_ASCII);
+		ErrorReporter errors = new ErrorReporter();
+		this._tokens = new Scanner(this.source(), errors).scanAll();
+		new Parser(this._tokens.cursor(), errors).parse();
+		new TableParser(this._tokens.cursor(), errors).parse();
+		if (errors.hasErrors()) {
+			throw new IllegalStateException("Benchmark input does not parse: " + errors.getErrors());
+		}
+	}
+	
+	private SourceInput source() {
+		return SourceInput.of(new ByteArrayInputStream(this._source));
+	}
+	
+	// Parser alone, over already scanned tokens
+	@Benchmark
+	public boolean parseBuffer(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		new Parser(this._tokens.cursor(), errors).parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+	
+	// Classes and method signatures only, bodies skipped by brace matching
+	@Benchmark
+	public boolean parseOutline(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		Parser parser = new Parser(this._tokens.cursor(), errors);
+		parser.setLazyBodies(true);
+		parser.parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+	
+	// Building the SyntaxTree, for comparison with parseListener
+	@Benchmark
+	public int parseTree(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		Parser parser = new Parser(this._tokens.cursor(), errors);
+		parser.setBuildTree(true);
+		parser.parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return parser.getTree().size();
+	}
+	
+	// The same nodes streamed to a ParseListener that only counts them
+	@Benchmark
+	public int parseListener(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		Parser parser = new Parser(this._tokens.cursor(), errors);
+		NodeCounter counter = new NodeCounter();
+		parser.setListener(counter);
+		parser.parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return counter.nodes;
+	}
+	
+	static final class NodeCounter implements ParseListener {
+		int nodes;
+		
+		@Override
+		public void enterClass(int token) { }
+		
+		@Override
+		public void exitClass(int name, int symbol) {
+			this.nodes++;
+		}
+		
+		@Override
+		public void enterMember(int token) { }
+		
+		@Override
+		public void exitMember(NodeKind kind, int name, int symbol) {
+			this.nodes++;
+		}
+		
+		@Override
+		public void enterStatement(int token) { }
+		
+		@Override
+		public void exitStatement(NodeKind kind, int token, int symbol) {
+			this.nodes++;
+		}
+		
+		@Override
+		public void enterExpression(int token) { }
+		
+		@Override
+		public void exitExpression() { }
+		
+		@Override
+		public void node(NodeKind kind, int token, int symbol) {
+			this.nodes++;
+		}
+		
+		@Override
+		public void abandon(int count) { }
+	}
+	
+	// The table-driven parser generated from the grammar, over the same tokens
+	@Benchmark
+	public boolean parseTable(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		new TableParser(this._tokens.cursor(), errors).parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+	
+	@Benchmark
+	public boolean parseBufferParallel(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		new ParallelParser(this._tokens, errors).parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+	
+	// Scanner and Parser together, pulling one token at a time
+	@Benchmark
+	public boolean scanAndParse(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		new Parser(new Scanner(this.source(), errors), errors).parse();
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+	
+	// Scanner on a second thread, handing batches of tokens to the Parser
+	@Benchmark
+	public boolean scanAndParsePipelined(Throughput counters) {
+		ErrorReporter errors = new ErrorReporter();
+		try (PipelinedScanner tokens = new PipelinedScanner(new Scanner(this.source(), errors))) {
+			new Parser(tokens, errors).parse();
+		}
+		counters.bytes += this._source.length;
+		counters.tokens += this._tokens.size();
+		return errors.hasErrors();
+	}
+}
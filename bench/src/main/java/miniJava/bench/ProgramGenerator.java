@@ -0,0 +1,350 @@
+package miniJava.bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Random;
+
+// Generates random, syntactically valid miniJava programs by walking the
+//  productions of the Parser (class body, statement, expression, reference,
+//  ...). The same seed and settings always produce the same program, and
+//  output is streamed so inputs can be far larger than the heap.
+public class ProgramGenerator {
+	private Random _random;
+	private int _maxDepth = 4;				// nesting of statements and parenthesized expressions
+	private int _expressionLength = 4;		// maximum operands in a binary expression chain
+	private double _commentRatio = 0.1;		// chance of a comment before a member or statement
+	private int _identifierLength = 8;		// maximum identifier length
+	
+	private Writer _out;
+	private long _written;
+	
+	public ProgramGenerator(long seed) {
+		this._random = new Random(seed);
+	}
+	
+	public ProgramGenerator maxDepth(int maxDepth) {
+		this._maxDepth = maxDepth;
+		return this;
+	}
+	
+	public ProgramGenerator expressionLength(int expressionLength) {
+		this._expressionLength = expressionLength;
+		return this;
+	}
+	
+	public ProgramGenerator commentRatio(double commentRatio) {
+		this._commentRatio = commentRatio;
+		return this;
+	}
+	
+	public ProgramGenerator identifierLength(int identifierLength) {
+		this._identifierLength = identifierLength;
+		return this;
+	}
+	
+	// Write classes until at least size bytes have been written. Returns the byte count.
+	public long generate(Writer out, long size) throws IOException {
+		this._out = out;
+		this._written = 0;
+		for (int n = 0; this._written < size; ++n) {
+			this.classDeclaration(n);
+		}
+		out.flush();
+		return this._written;
+	}
+	
+	// ClassDeclaration ::= class id { (FieldDeclaration | MethodDeclaration)* }
+	private void classDeclaration(int n) throws IOException {
+		this.comment("");
+		this.emit("class ").emit(this.identifier()).emit(Integer.toString(n)).emit(" {\n");
+		int members = 1 + this._random.nextInt(6);
+		for (int i = 0; i < members; ++i) {
+			this.comment("\t");
+			if (this._random.nextInt(3) == 0) {
+				this.fieldDeclaration();
+			} else {
+				this.methodDeclaration();
+			}
+		}
+		this.emit("}\n");
+	}
+	
+	// FieldDeclaration ::= Visibility? Access? Type id ;
+	private void fieldDeclaration() throws IOException {
+		this.emit("\t").modifiers().type().emit(" ").emit(this.identifier()).emit(";\n");
+	}
+	
+	// MethodDeclaration ::= Visibility? Access? (Type | void) id ( ParameterList? ) { Statement* }
+	private void methodDeclaration() throws IOException {
+		this.emit("\t").modifiers();
+		if (this._random.nextInt(3) == 0) {
+			this.emit("void");
+		} else {
+			this.type();
+		}
+		this.emit(" ").emit(this.identifier()).emit("(");
+		
+		// ParameterList ::= Type id (, Type id)*
+		int parameters = this._random.nextInt(4);
+		for (int i = 0; i < parameters; ++i) {
+			if (i > 0) {
+				this.emit(", ");
+			}
+			this.type().emit(" ").emit(this.identifier());
+		}
+		
+		this.emit(") {\n");
+		int statements = this._random.nextInt(8);
+		for (int i = 0; i < statements; ++i) {
+			this.statement(2, 0);
+		}
+		this.emit("\t}\n");
+	}
+	
+	private ProgramGenerator modifiers() throws IOException {
+		switch (this._random.nextInt(3)) {
+		case 0:
+			this.emit("public ");
+			break;
+		case 1:
+			this.emit("private ");
+			break;
+		default:
+		}
+		if (this._random.nextBoolean()) {
+			this.emit("static ");
+		}
+		return this;
+	}
+	
+	// Type ::= int | boolean | id | (int | id) []
+	private ProgramGenerator type() throws IOException {
+		switch (this._random.nextInt(5)) {
+		case 0:
+			return this.emit("int");
+		case 1:
+			return this.emit("boolean");
+		case 2:
+			return this.emit("int[]");
+		case 3:
+			return this.emit(this.typeName()).emit("[]");
+		default:
+			return this.emit(this.typeName());
+		}
+	}
+	
+	private void statement(int indent, int depth) throws IOException {
+		this.comment(this.tabs(indent));
+		this.emit(this.tabs(indent));
+		int choice = this._random.nextInt(depth < this._maxDepth ? 11 : 8);
+		switch (choice) {
+		case 0:
+			// Type id = Expression ;
+			this.type().emit(" ").emit(this.identifier()).emit(" = ").expression(depth).emit(";\n");
+			break;
+		case 1:
+			// Reference = Expression ;
+			this.reference().emit(" = ").expression(depth).emit(";\n");
+			break;
+		case 2:
+			// Reference [ Expression ] = Expression ;
+			this.reference().emit("[").expression(depth).emit("] = ").expression(depth).emit(";\n");
+			break;
+		case 3:
+			// Reference ( ArgumentList? ) ;
+			this.reference().arguments(depth).emit(";\n");
+			break;
+		case 4:
+			// return Expression? ;
+			this.emit("return");
+			if (this._random.nextBoolean()) {
+				this.emit(" ").expression(depth);
+			}
+			this.emit(";\n");
+			break;
+		case 5:
+			// this.id = Expression ;
+			this.emit("this.").emit(this.identifier()).emit(" = ").expression(depth).emit(";\n");
+			break;
+		case 6:
+		case 7:
+			// id = Expression ;
+			this.emit(this.identifier()).emit(" = ").expression(depth).emit(";\n");
+			break;
+		case 8:
+			// { Statement* }
+			this.emit("{\n");
+			int statements = this._random.nextInt(4);
+			for (int i = 0; i < statements; ++i) {
+				this.statement(indent + 1, depth + 1);
+			}
+			this.emit(this.tabs(indent)).emit("}\n");
+			break;
+		case 9:
+			// if ( Expression ) Statement (else Statement)?
+			this.emit("if (").expression(depth + 1).emit(")\n");
+			this.statement(indent + 1, depth + 1);
+			if (this._random.nextBoolean()) {
+				this.emit(this.tabs(indent)).emit("else\n");
+				this.statement(indent + 1, depth + 1);
+			}
+			break;
+		default:
+			// while ( Expression ) Statement
+			this.emit("while (").expression(depth + 1).emit(")\n");
+			this.statement(indent + 1, depth + 1);
+			break;
+		}
+	}
+	
+	// Expression ::= operand (binop operand)*
+	private ProgramGenerator expression(int depth) throws IOException {
+		int operands = 1 + this._random.nextInt(this._expressionLength);
+		for (int i = 0; i < operands; ++i) {
+			if (i > 0) {
+				this.emit(" ").emit(this.binop()).emit(" ");
+			}
+			this.operand(depth);
+		}
+		return this;
+	}
+	
+	private void operand(int depth) throws IOException {
+		int choice = this._random.nextInt(depth < this._maxDepth ? 11 : 7);
+		switch (choice) {
+		case 0:
+			this.reference();
+			break;
+		case 1:
+			this.emit(Integer.toString(this._random.nextInt(1000)));
+			break;
+		case 2:
+			this.emit(this._random.nextBoolean() ? "true" : "false");
+			break;
+		case 3:
+			this.emit("new ").emit(this.typeName()).emit("()");
+			break;
+		case 4:
+			this.emit("this");
+			break;
+		case 5:
+		case 6:
+			this.emit(this.identifier());
+			break;
+		case 7:
+			// Reference [ Expression ]
+			this.reference().emit("[").expression(depth + 1).emit("]");
+			break;
+		case 8:
+			// Reference ( ArgumentList? )
+			this.reference().arguments(depth + 1);
+			break;
+		case 9:
+			// unop Expression
+			this.emit(this._random.nextBoolean() ? "!" : "-").operand(depth + 1);
+			break;
+		default:
+			// ( Expression ) | new int [ Expression ] | new id [ Expression ]
+			switch (this._random.nextInt(3)) {
+			case 0:
+				this.emit("(").expression(depth + 1).emit(")");
+				break;
+			case 1:
+				this.emit("new int[").expression(depth + 1).emit("]");
+				break;
+			default:
+				this.emit("new ").emit(this.typeName()).emit("[").expression(depth + 1).emit("]");
+			}
+		}
+	}
+	
+	// ( ArgumentList? ) where ArgumentList ::= Expression (, Expression)*
+	private ProgramGenerator arguments(int depth) throws IOException {
+		this.emit("(");
+		int arguments = this._random.nextInt(4);
+		for (int i = 0; i < arguments; ++i) {
+			if (i > 0) {
+				this.emit(", ");
+			}
+			this.expression(depth + 1);
+		}
+		return this.emit(")");
+	}
+	
+	// Reference ::= (id | this) (. id)*
+	private ProgramGenerator reference() throws IOException {
+		this.emit(this._random.nextInt(4) == 0 ? "this" : this.identifier());
+		int fields = this._random.nextInt(3);
+		for (int i = 0; i < fields; ++i) {
+			this.emit(".").emit(this.identifier());
+		}
+		return this;
+	}
+	
+	private String binop() {
+		// Division is always followed by a space: the Scanner consumes the character after /
+		switch (this._random.nextInt(13)) {
+		case 0: return "+";
+		case 1: return "-";
+		case 2: return "*";
+		case 3: return "/";
+		case 4: return "<";
+		case 5: return ">";
+		case 6: return "<=";
+		case 7: return ">=";
+		case 8: return "==";
+		case 9: return "!=";
+		case 10: return "&&";
+		case 11: return "||";
+		default: return "+";
+		}
+	}
+	
+	private void comment(String indent) throws IOException {
+		if (this._random.nextDouble() >= this._commentRatio) {
+			return;
+		}
+		if (this._random.nextBoolean()) {
+			this.emit(indent).emit("// ").emit(this.words()).emit("\n");
+		} else {
+			this.emit(indent).emit("/* ").emit(this.words()).emit("\n").emit(indent).emit(" * ").emit(this.words()).emit(" */\n");
+		}
+	}
+	
+	private String words() {
+		StringBuilder sb = new StringBuilder();
+		int words = 3 + this._random.nextInt(10);
+		for (int i = 0; i < words; ++i) {
+			sb.append(i > 0 ? " " : "").append(this.identifier());
+		}
+		return sb.toString();
+	}
+	
+	// Identifiers start with a lowercase letter and continue with letters, digits and _
+	private String identifier() {
+		String chars = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+		int length = 1 + this._random.nextInt(this._identifierLength);
+		StringBuilder sb = new StringBuilder(length + 1);
+		sb.append((char) ('a' + this._random.nextInt(26)));
+		for (int i = 1; i < length; ++i) {
+			sb.append(chars.charAt(this._random.nextInt(chars.length())));
+		}
+		// Keep clear of reserved words by always ending in a digit or _
+		sb.append(this._random.nextBoolean() ? '_' : (char) ('0' + this._random.nextInt(10)));
+		return sb.toString();
+	}
+	
+	private String typeName() {
+		return "T" + this.identifier();
+	}
+	
+	private String tabs(int indent) {
+		return "\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t\t".substring(0, Math.min(indent, 16));
+	}
+	
+	private ProgramGenerator emit(String text) throws IOException {
+		this._out.write(text);
+		this._written += text.length();
+		return this;
+	}
+}
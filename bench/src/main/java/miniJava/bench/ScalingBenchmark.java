@@ -0,0 +1,182 @@
+package miniJava.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import miniJava.Compiler;
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.SourceInput;
+
+// Compiles generated programs of growing size end to end and reports
+//  throughput, peak heap and GC time per size. Time per byte should stay
+//  flat; a growing ns/B column points at super-linear behavior.
+//
+// Usage: ScalingBenchmark [--max-size 1g] [--seed 42] [--depth 4] [--expr 4] [--comments 0.1] [--dir path]
+public class ScalingBenchmark {
+	public static void main(String[] args) throws IOException {
+		long maxSize = 64L << 20;
+		long seed = 42;
+		int depth = 4;
+		int expressionLength = 4;
+		double comments = 0.1;
+		Path dir = null;
+		
+		for (int i = 0; i + 1 < args.length; i += 2) {
+			switch (args[i]) {
+			case "--max-size":
+				maxSize = parseSize(args[i + 1]);
+				break;
+			case "--seed":
+				seed = Long.parseLong(args[i + 1]);
+				break;
+			case "--depth":
+				depth = Integer.parseInt(args[i + 1]);
+				break;
+			case "--expr":
+				expressionLength = Integer.parseInt(args[i + 1]);
+				break;
+			case "--comments":
+				comments = Double.parseDouble(args[i + 1]);
+				break;
+			case "--dir":
+				dir = Path.of(args[i + 1]);
+				break;
+			default:
+				System.err.println("Unknown option " + args[i]);
+				System.exit(2);
+			}
+		}
+		// A directory made here is removed again at the end, one given with --dir is left
+		boolean createdDir = dir == null;
+		if (createdDir) {
+			dir = Files.createTempDirectory("minijava-scaling");
+		}
+		
+		System.out.println(String.format(Locale.ROOT, "%12s %10s %10s %8s %12s %10s %8s",
+				"size", "bytes", "ms", "MB/s", "peak heap MB", "GC ms", "ns/B"));
+		
+		boolean failed = false;
+		try {
+			// Warm up the compiler on small inputs before measuring
+			for (int i = 0; i < 20; ++i) {
+				Path file = generate(dir, 64 << 10, seed + i, depth, expressionLength, comments);
+				try {
+					compile(file);
+				} finally {
+					Files.delete(file);
+				}
+			}
+			
+			for (long size = 1 << 10; size <= maxSize; size *= 4) {
+				Path file = generate(dir, size, seed, depth, expressionLength, comments);
+				long bytes = Files.size(file);
+				
+				System.gc();
+				resetPeakHeap();
+				long gcBefore = gcMillis();
+				long start = System.nanoTime();
+				boolean success;
+				long elapsed;
+				long gc;
+				try {
+					success = compile(file);
+					elapsed = System.nanoTime() - start;
+					gc = gcMillis() - gcBefore;
+				} finally {
+					Files.delete(file);
+				}
+				
+				if (!success) {
+					System.err.println("Generated program of " + size + " bytes did not compile");
+					failed = true;
+					break;
+				}
+				System.out.println(String.format(Locale.ROOT, "%12s %10d %10.1f %8.1f %12.1f %10d %8.2f",
+						formatSize(size), bytes, elapsed / 1e6, bytes / 1e6 / (elapsed / 1e9),
+						peakHeap() / 1048576.0, gc, (double) elapsed / bytes));
+			}
+		} finally {
+			if (createdDir) {
+				Files.delete(dir);
+			}
+		}
+		if (failed) {
+			System.exit(1);
+		}
+	}
+	
+	private static Path generate(Path dir, long size, long seed, int depth, int expressionLength, double comments) throws IOException {
+		Path file = dir.resolve("generated-" + size + "-" + seed + ".java");
+		try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+			new ProgramGenerator(seed).maxDepth(depth).expressionLength(expressionLength).commentRatio(comments).generate(out, size);
+		}
+		return file;
+	}
+	
+	private static boolean compile(Path file) throws IOException {
+		ErrorReporter errors = new ErrorReporter();
+		try (SourceInput source = SourceInput.open(file.toString())) {
+			return Compiler.compile(source, errors);
+		}
+	}
+	
+	private static void resetPeakHeap() {
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+	
+	// Sum of the heap pool peaks since the last reset
+	private static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+	
+	private static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, gc.getCollectionTime());
+		}
+		return total;
+	}
+	
+	private static long parseSize(String size) {
+		String s = size.toLowerCase(Locale.ROOT);
+		long unit = 1;
+		if (s.endsWith("k")) {
+			unit = 1L << 10;
+		} else if (s.endsWith("m")) {
+			unit = 1L << 20;
+		} else if (s.endsWith("g")) {
+			unit = 1L << 30;
+		}
+		if (unit != 1) {
+			s = s.substring(0, s.length() - 1);
+		}
+		return Long.parseLong(s) * unit;
+	}
+	
+	private static String formatSize(long size) {
+		if (size >= 1L << 30) {
+			return (size >> 30) + " GB";
+		} else if (size >= 1L << 20) {
+			return (size >> 20) + " MB";
+		}
+		return (size >> 10) + " KB";
+	}
+}
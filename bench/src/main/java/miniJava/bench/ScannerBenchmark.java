@@ -0,0 +1,85 @@
+package miniJava.bench;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceInput;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+// Lexing throughput. The bytes and tokens counters are reported per second;
+//  run with -prof gc for allocation (gc.alloc.rate.norm / kilobytes = bytes per KB).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScannerBenchmark {
+	@Param({ "identifiers", "comments", "nested", "classes" })
+	public String shape;
+	
+	@Param({ "256" })
+	public int kilobytes;
+	
+	private byte[] _source;
+	
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Throughput {
+		public long bytes;
+		public long tokens;
+		
+		@Setup(Level.Iteration)
+		public void reset() {
+			this.bytes = 0;
+			this.tokens = 0;
+		}
+	}
+	
+	@Setup
+	public void setup() {
+		this._source = Corpus.generate(Corpus.Shape.valueOf(this.shape), this.kilobytes * 1024).getBytes(StandardCharsets.US_ASCII);
+	}
+	
+	// One Token object per token
+	@Benchmark
+	public int scanTokens(Throughput counters) {
+		Scanner scanner = new Scanner(SourceInput.of(new ByteArrayInputStream(this._source)), new ErrorReporter());
+		int count = 1;
+		for (Token token = scanner.scan(); token.getTokenType() != TokenType.EOT; token = scanner.scan()) {
+			count += 1;
+		}
+		counters.bytes += this._source.length;
+		counters.tokens += count;
+		return count;
+	}
+	
+	// Compact token buffer
+	@Benchmark
+	public TokenBuffer scanBuffer(Throughput counters) {
+		Scanner scanner = new Scanner(SourceInput.of(new ByteArrayInputStream(this._source)), new ErrorReporter());
+		TokenBuffer tokens = scanner.scanAll();
+		counters.bytes += this._source.length;
+		counters.tokens += tokens.size();
+		return tokens;
+	}
+}
@@ -0,0 +1,51 @@
+package miniJava.AbstractSyntaxTrees;
+
+// Kinds of SyntaxTree nodes. The comment on each lists its children in order,
+//  and which token the node records.
+public enum NodeKind {
+	Program,			// ClassDecl*
+	ClassDecl,			// (FieldDecl|MethodDecl)*, token is the class name
+	FieldDecl,			// Modifier* Type, token is the field name
+	MethodDecl,			// Modifier* (Type|VoidType) Parameter* Statement*, token is the method name
+	Parameter,			// Type, token is the parameter name
+	Modifier,			// token is public, private or static
+	
+	// Types
+	IntType,			// token is int
+	BoolType,			// token is boolean
+	ClassType,			// token is the class name
+	ArrayType,			// Type, token is []
+	VoidType,			// token is void
+	
+	// Statements
+	BlockStmt,			// Statement*, token is {
+	VarDeclStmt,		// Type Expression, token is the variable name
+	AssignStmt,			// Reference Expression, token is =
+	IndexedAssignStmt,	// Reference Expression Expression, token is =
+	CallStmt,			// Reference Expression*, token is (
+	ReferenceStmt,		// Reference, a bare reference the grammar lets through
+	ReturnStmt,			// Expression?, token is return
+	IfStmt,				// Expression Statement Statement?, token is if
+	WhileStmt,			// Expression Statement, token is while
+	
+	// References, which are also expressions
+	ThisRef,			// token is this
+	IdRef,				// token is the identifier
+	QualifiedRef,		// Reference, token is the identifier after the dot
+	
+	// Expressions
+	UnaryExpr,			// Expression, token is the operator
+	BinaryExpr,			// Expression Expression, token is the operator
+	IndexedExpr,		// Reference Expression, token is [
+	CallExpr,			// Reference Expression*, token is (
+	IntLiteral,			// token is the number
+	BoolLiteral,		// token is true or false
+	NewObjectExpr,		// token is the class name
+	NewArrayExpr;		// Type Expression, token is new
+	
+	private static final NodeKind[] KINDS = values();
+	
+	static NodeKind of(int ordinal) {
+		return KINDS[ordinal];
+	}
+}
@@ -0,0 +1,161 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+
+import miniJava.SyntacticAnalyzer.SymbolTable;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+// An abstract syntax tree kept in a flat arena. Nodes are int indices into
+//  parallel primitive arrays rather than objects, 17 bytes a node, and
+//  children are linked through first child and next sibling.
+//
+// Nodes are added bottom-up, so every node comes after its children and
+//  the root is the last node. Walking the arrays in order is a post-order walk.
+//  The root is a Program, or the BlockStmt of a lazily parsed method body.
+public class SyntaxTree {
+	public static final int NONE = -1;
+	
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	private TokenBuffer _tokens;	// the tokens node tokens index, if parsed from a buffer
+	private byte[] _kinds;
+	private int[] _firstChildren;
+	private int[] _nextSiblings;
+	private int[] _tokenIndices;
+	private int[] _symbols;
+	private int _size = 0;
+	
+	public SyntaxTree(TokenBuffer tokens) {
+		this._tokens = tokens;
+		this._kinds = new byte[INITIAL_CAPACITY];
+		this._firstChildren = new int[INITIAL_CAPACITY];
+		this._nextSiblings = new int[INITIAL_CAPACITY];
+		this._tokenIndices = new int[INITIAL_CAPACITY];
+		this._symbols = new int[INITIAL_CAPACITY];
+	}
+	
+	int add(NodeKind kind, int token, int symbol, int firstChild) {
+		if (this._size == this._kinds.length) {
+			int capacity = this._size * 2;
+			this._kinds = Arrays.copyOf(this._kinds, capacity);
+			this._firstChildren = Arrays.copyOf(this._firstChildren, capacity);
+			this._nextSiblings = Arrays.copyOf(this._nextSiblings, capacity);
+			this._tokenIndices = Arrays.copyOf(this._tokenIndices, capacity);
+			this._symbols = Arrays.copyOf(this._symbols, capacity);
+		}
+		this._kinds[this._size] = (byte) kind.ordinal();
+		this._firstChildren[this._size] = firstChild;
+		this._nextSiblings[this._size] = NONE;
+		this._tokenIndices[this._size] = token;
+		this._symbols[this._size] = symbol;
+		return this._size++;
+	}
+	
+	void link(int node, int nextSibling) {
+		this._nextSiblings[node] = nextSibling;
+	}
+	
+	// Drop the nodes added since the tree had size nodes
+	void truncate(int size) {
+		this._size = size;
+	}
+	
+	public int size() {
+		return this._size;
+	}
+	
+	// The last node built, or NONE if nothing was parsed
+	public int root() {
+		return this._size > 0 ? this._size - 1 : NONE;
+	}
+	
+	public TokenBuffer getTokens() {
+		return this._tokens;
+	}
+	
+	public NodeKind kind(int node) {
+		return NodeKind.of(this._kinds[node]);
+	}
+	
+	public int firstChild(int node) {
+		return this._firstChildren[node];
+	}
+	
+	public int nextSibling(int node) {
+		return this._nextSiblings[node];
+	}
+	
+	// Index of the token the node records, see NodeKind
+	public int token(int node) {
+		return this._tokenIndices[node];
+	}
+	
+	// Symbol ID of the node's name, or SymbolTable.NONE
+	public int symbol(int node) {
+		return this._symbols[node];
+	}
+	
+	public int childCount(int node) {
+		int count = 0;
+		for (int child = this.firstChild(node); child != NONE; child = this.nextSibling(child)) {
+			count += 1;
+		}
+		return count;
+	}
+	
+	public int child(int node, int index) {
+		int child = this.firstChild(node);
+		for (int i = 0; i < index && child != NONE; ++i) {
+			child = this.nextSibling(child);
+		}
+		return child;
+	}
+	
+	// Spelling of the node's token, needs the token buffer the tree was parsed from
+	public String text(int node) {
+		int token = this.token(node);
+		if (this.symbol(node) != SymbolTable.NONE && this._tokens != null) {
+			return this._tokens.getSymbols().name(this.symbol(node));
+		}
+		return token == NONE || this._tokens == null ? "" : this._tokens.text(token);
+	}
+	
+	public SyntaxTreeCursor cursor() {
+		return new SyntaxTreeCursor(this, this.root());
+	}
+	
+	// Walk the tree from the root, depth first
+	public void accept(SyntaxTreeVisitor visitor) {
+		if (this.root() != NONE) {
+			this.walk(this.root(), visitor);
+		}
+	}
+	
+	// Walk the subtree under node, depth first. The walk keeps its own stack,
+	//  so deeply nested trees do not use up the Java stack.
+	public void walk(int node, SyntaxTreeVisitor visitor) {
+		int[] stack = new int[16];
+		int depth = 0;
+		int current = node;
+		while (true) {
+			if (visitor.enter(this, current) && this.firstChild(current) != NONE) {
+				if (depth == stack.length) {
+					stack = Arrays.copyOf(stack, depth * 2);
+				}
+				stack[depth++] = current;
+				current = this.firstChild(current);
+				continue;
+			}
+			visitor.exit(this, current);
+			// Climb until there is a sibling to move on to
+			while (current != node && this.nextSibling(current) == NONE) {
+				current = stack[--depth];
+				visitor.exit(this, current);
+			}
+			if (current == node) {
+				return;
+			}
+			current = this.nextSibling(current);
+		}
+	}
+}
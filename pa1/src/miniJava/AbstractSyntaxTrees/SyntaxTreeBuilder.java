@@ -0,0 +1,62 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+
+// Builds a SyntaxTree bottom-up as the Parser completes each rule. Finished
+//  nodes wait on a stack until their parent is built, which takes every node
+//  pushed since its mark() as children.
+public class SyntaxTreeBuilder {
+	private SyntaxTree _tree;
+	private int[] _pending = new int[64];
+	private int _pendingCount = 0;
+	
+	public SyntaxTreeBuilder(SyntaxTree tree) {
+		this._tree = tree;
+	}
+	
+	public SyntaxTree getTree() {
+		return this._tree;
+	}
+	
+	// Where the children of a node about to be parsed start
+	public int mark() {
+		return this._pendingCount;
+	}
+	
+	// Number of nodes in the tree, to go back to with reset()
+	public int size() {
+		return this._tree.size();
+	}
+	
+	public void leaf(NodeKind kind, int token, int symbol) {
+		this.push(this._tree.add(kind, token, symbol, SyntaxTree.NONE));
+	}
+	
+	// Build a node whose children are the nodes pushed since mark
+	public int node(NodeKind kind, int token, int symbol, int mark) {
+		int firstChild = SyntaxTree.NONE;
+		if (mark < this._pendingCount) {
+			firstChild = this._pending[mark];
+			for (int i = mark + 1; i < this._pendingCount; ++i) {
+				this._tree.link(this._pending[i - 1], this._pending[i]);
+			}
+		}
+		this._pendingCount = mark;
+		int node = this._tree.add(kind, token, symbol, firstChild);
+		this.push(node);
+		return node;
+	}
+	
+	// Abandon the nodes built since mark and size were taken, after a syntax error
+	public void reset(int mark, int size) {
+		this._pendingCount = Math.min(this._pendingCount, mark);
+		this._tree.truncate(size);
+	}
+	
+	private void push(int node) {
+		if (this._pendingCount == this._pending.length) {
+			this._pending = Arrays.copyOf(this._pending, this._pendingCount * 2);
+		}
+		this._pending[this._pendingCount++] = node;
+	}
+}
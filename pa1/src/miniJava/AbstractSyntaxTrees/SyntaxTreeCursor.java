@@ -0,0 +1,78 @@
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+
+// Moves around a SyntaxTree one node at a time. Nodes do not store their
+//  parent, so the cursor remembers the path down to the current node.
+public class SyntaxTreeCursor {
+	private SyntaxTree _tree;
+	private int _node;
+	private int[] _path = new int[16];	// ancestors of the current node, root first
+	private int _depth = 0;
+	
+	public SyntaxTreeCursor(SyntaxTree tree, int node) {
+		this._tree = tree;
+		this._node = node;
+	}
+	
+	public SyntaxTree getTree() {
+		return this._tree;
+	}
+	
+	public int node() {
+		return this._node;
+	}
+	
+	public NodeKind kind() {
+		return this._tree.kind(this._node);
+	}
+	
+	public int token() {
+		return this._tree.token(this._node);
+	}
+	
+	public int symbol() {
+		return this._tree.symbol(this._node);
+	}
+	
+	public String text() {
+		return this._tree.text(this._node);
+	}
+	
+	public int depth() {
+		return this._depth;
+	}
+	
+	// Move to the first child, false if there is none
+	public boolean firstChild() {
+		int child = this._tree.firstChild(this._node);
+		if (child == SyntaxTree.NONE) {
+			return false;
+		}
+		if (this._depth == this._path.length) {
+			this._path = Arrays.copyOf(this._path, this._depth * 2);
+		}
+		this._path[this._depth++] = this._node;
+		this._node = child;
+		return true;
+	}
+	
+	// Move to the next sibling, false if there is none
+	public boolean nextSibling() {
+		int sibling = this._tree.nextSibling(this._node);
+		if (this._depth == 0 || sibling == SyntaxTree.NONE) {
+			return false;
+		}
+		this._node = sibling;
+		return true;
+	}
+	
+	// Move back to the parent, false at the node the cursor started from
+	public boolean parent() {
+		if (this._depth == 0) {
+			return false;
+		}
+		this._node = this._path[--this._depth];
+		return true;
+	}
+}
@@ -0,0 +1,10 @@
+package miniJava.AbstractSyntaxTrees;
+
+// Receives the nodes of a SyntaxTree walk, see SyntaxTree.walk()
+public interface SyntaxTreeVisitor {
+	// Called before the children of node. Returning false skips them.
+	boolean enter(SyntaxTree tree, int node);
+	
+	// Called after the children of node, or right after enter() if they are skipped
+	void exit(SyntaxTree tree, int node);
+}
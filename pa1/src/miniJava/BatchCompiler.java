@@ -0,0 +1,333 @@
+package miniJava;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+import miniJava.Cache.CompileCache;
+import miniJava.Statistics.CompilePhase;
+import miniJava.Statistics.CompileStats;
+import miniJava.SyntacticAnalyzer.SourceArchive;
+import miniJava.SyntacticAnalyzer.SourceInput;
+
+// Compiles many files in one JVM on a work-stealing pool. Every file gets its
+//  own ErrorReporter, and results are printed in input order once all are done.
+public class BatchCompiler {
+	private List<String> _paths;
+	private Result[] _results;
+	private int _errorLimit = ErrorReporter.DEFAULT_LIMIT;
+	private boolean _json = false;
+	private PrintStream _statsOut;
+	private CompileCache _cache;
+	private boolean _identify = false;
+	private Map<String, SourceArchive> _archives = new HashMap<String, SourceArchive>();	// opened while compiling
+	
+	public BatchCompiler(List<String> paths) {
+		this._paths = paths;
+		this._results = new Result[paths.size()];
+	}
+	
+	// Stop compiling a file once it has this many errors
+	public void setErrorLimit(int errorLimit) {
+		this._errorLimit = errorLimit;
+	}
+	
+	// Print diagnostics as JSON lines instead of text
+	public void setJson(boolean json) {
+		this._json = json;
+	}
+	
+	// Print a JSON line of statistics per file to out, see CompileStats
+	public void setStats(PrintStream out) {
+		this._statsOut = out;
+	}
+	
+	// Reuse and save results in cache, or in none if it is null
+	public void setCache(CompileCache cache) {
+		this._cache = cache;
+	}
+	
+	// Identify names in the files that parse, see Identification
+	public void setIdentify(boolean identify) {
+		this._identify = identify;
+	}
+	
+	static Diagnostic fileNotFound() {
+		return new Diagnostic(DiagnosticCode.FileNotFound, 0, 0, Diagnostic.UNKNOWN, Diagnostic.UNKNOWN);
+	}
+	
+	static class Result {
+		private String _path;
+		private boolean _found;
+		private ErrorReporter _errors;
+		private CompileStats _stats;	// null unless recorded
+		
+		Result(String path, boolean found, ErrorReporter errors, CompileStats stats) {
+			this._path = path;
+			this._found = found;
+			this._errors = errors;
+			this._stats = stats;
+		}
+		
+		String getPath() {
+			return this._path;
+		}
+		
+		boolean isFound() {
+			return this._found;
+		}
+		
+		ErrorReporter getErrors() {
+			return this._errors;
+		}
+		
+		CompileStats getStats() {
+			return this._stats;
+		}
+		
+		boolean succeeded() {
+			return this._found && !this._errors.hasErrors();
+		}
+		
+		void output(PrintStream out) {
+			if (!this._found) {
+				out.println(this._path + ": Error: File Not Found");
+			} else if (this._errors.hasErrors()) {
+				out.println(this._path + ": Error");
+				this._errors.outputErrors(out);
+			} else {
+				out.println(this._path + ": Success");
+			}
+		}
+		
+		void outputJson(PrintStream out) {
+			JsonDiagnosticSink sink = new JsonDiagnosticSink(out, this._path);
+			if (!this._found) {
+				sink.report(fileNotFound());
+				return;
+			}
+			for (Diagnostic diagnostic : this._errors.getDiagnostics()) {
+				sink.report(diagnostic);
+			}
+		}
+	}
+	
+	// Compile the files in [from, to), splitting the range so idle workers can steal half
+	private class CompileRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int _from;
+		private int _to;
+		
+		CompileRange(int from, int to) {
+			this._from = from;
+			this._to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (this._to - this._from == 1) {
+				_results[this._from] = compileFile(_paths.get(this._from));
+				return;
+			}
+			int mid = (this._from + this._to) >>> 1;
+			invokeAll(new CompileRange(this._from, mid), new CompileRange(mid, this._to));
+		}
+	}
+	
+	// Statistics are recorded if asked for or a JFR recording takes them
+	private Result compileFile(String path) {
+		ErrorReporter errors = new ErrorReporter();
+		errors.setErrorLimit(this._errorLimit);
+		CompileStats stats = this._statsOut != null || CompileStats.isRecording() ? new CompileStats(path) : null;
+		SourceInput source;
+		try {
+			if (stats != null) {
+				stats.begin(CompilePhase.Read);
+			}
+			source = this.open(path);
+			if (stats != null) {
+				stats.end(source.length(), 0);
+			}
+		} catch (ZipException e) {
+			// A damaged archive or entry was found but can't be read
+			report(errors, new Diagnostic(DiagnosticCode.ReadError, 0, 0, Diagnostic.UNKNOWN, Diagnostic.UNKNOWN, e.getMessage()));
+			return new Result(path, true, errors, null);
+		} catch (IOException e) {
+			return new Result(path, false, errors, null);
+		} catch (RuntimeException e) {
+			reportFailure(errors, e);
+			return new Result(path, true, errors, null);
+		}
+		
+		try {
+			Compiler.compile(source, errors, stats, this._cache, this._identify);
+		} catch (RuntimeException | StackOverflowError e) {
+			// Fails this file only, the rest of the batch still compiles
+			reportFailure(errors, e);
+		} finally {
+			try {
+				source.close();
+			} catch (IOException e) {
+				// Reading already succeeded, a failed close doesn't change the result
+			}
+		}
+		if (stats != null) {
+			stats.commitCounts();
+		}
+		return new Result(path, true, errors, stats);
+	}
+	
+	private static void reportFailure(ErrorReporter errors, Throwable failure) {
+		String reason = failure instanceof StackOverflowError ? "input nested too deeply" : failure.toString();
+		report(errors, new Diagnostic(DiagnosticCode.CompilerFailure, 0, 0, Diagnostic.UNKNOWN, Diagnostic.UNKNOWN, reason));
+	}
+	
+	private static void report(ErrorReporter errors, Diagnostic diagnostic) {
+		try {
+			errors.report(diagnostic);
+		} catch (ErrorReporter.LimitReached e) {
+			// Recorded all the same
+		}
+	}
+	
+	// Entries of one archive share a single mapping of it
+	private SourceInput open(String path) throws IOException {
+		int separator = SourceArchive.separator(path);
+		if (separator < 0 && SourceArchive.isArchive(path) && Files.isRegularFile(Paths.get(path))) {
+			// Only an archive that could not be listed is compiled whole, see expand()
+			SourceArchive.open(path).close();
+			throw new ZipException("Cannot list archive " + path);
+		}
+		if (separator < 0) {
+			return SourceInput.open(path);
+		}
+		String archivePath = path.substring(0, separator);
+		SourceArchive archive;
+		synchronized (this._archives) {
+			archive = this._archives.get(archivePath);
+			if (archive == null) {
+				archive = SourceArchive.open(archivePath);
+				this._archives.put(archivePath, archive);
+			}
+		}
+		return archive.entry(path.substring(separator + SourceArchive.SEPARATOR.length()));
+	}
+	
+	// Compile every file and print per-file results and a summary.
+	//  Returns the process exit code: 0 if every file compiled, 1 otherwise.
+	public int run(PrintStream out) {
+		ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		try {
+			this.compile(pool);
+		} finally {
+			pool.shutdown();
+		}
+		
+		int failed = 0;
+		for (Result result : this._results) {
+			if (this._json) {
+				result.outputJson(out);
+			} else {
+				result.output(out);
+			}
+			if (!result.succeeded()) {
+				failed += 1;
+			}
+			if (this._statsOut != null && result.getStats() != null) {
+				result.getStats().output(this._statsOut);
+			}
+		}
+		if (this._json) {
+			return failed == 0 ? 0 : 1;
+		}
+		out.println("Compiled " + this._results.length + " files: "
+				+ (this._results.length - failed) + " succeeded, " + failed + " failed");
+		return failed == 0 ? 0 : 1;
+	}
+	
+	// Compile every file on the given pool and return the results in input order.
+	Result[] compile(ForkJoinPool pool) {
+		if (!this._paths.isEmpty()) {
+			try {
+				pool.invoke(new CompileRange(0, this._paths.size()));
+			} finally {
+				this.closeArchives();
+			}
+		}
+		return this._results;
+	}
+	
+	// The entries read from them stay readable, their mappings outlive the archive
+	private void closeArchives() {
+		synchronized (this._archives) {
+			for (SourceArchive archive : this._archives.values()) {
+				try {
+					archive.close();
+				} catch (IOException e) {
+					// Nothing is written, a failed close changes no result
+				}
+			}
+			this._archives.clear();
+		}
+	}
+	
+	// Expand the command line into a list of files. An argument is a source
+	//  file, a directory searched recursively for .java files, a zip or jar
+	//  archive whose .java entries are taken as archive!/entry, or @file naming
+	//  a response file with one argument per line. An archive that can't be
+	//  read is kept whole, to fail as one file while the rest still compile.
+	public static List<String> expand(String[] args) throws IOException {
+		List<String> paths = new ArrayList<String>();
+		for (String arg : args) {
+			expand(arg, paths);
+		}
+		return paths;
+	}
+	
+	private static void expand(String arg, List<String> paths) throws IOException {
+		if (arg.startsWith("@")) {
+			for (String line : Files.readAllLines(Paths.get(arg.substring(1)))) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					expand(line, paths);
+				}
+			}
+			return;
+		}
+		
+		Path path = Paths.get(arg);
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> files = Files.walk(path)) {
+				paths.addAll(files.filter(p -> p.toString().endsWith(".java") && Files.isRegularFile(p))
+						.map(Path::toString)
+						.sorted()
+						.collect(Collectors.toList()));
+			}
+		} else if (SourceArchive.isArchive(arg) && Files.isRegularFile(path)) {
+			List<String> names;
+			try (SourceArchive archive = SourceArchive.open(arg)) {
+				names = archive.sourceNames();
+			} catch (IOException e) {
+				paths.add(arg);
+				return;
+			}
+			names.sort(null);
+			for (String name : names) {
+				paths.add(SourceArchive.path(arg, name));
+			}
+		} else {
+			paths.add(arg);
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package miniJava.Cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import miniJava.Diagnostic;
+import miniJava.DiagnosticCode;
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.LineMap;
+import miniJava.SyntacticAnalyzer.SourceInput;
+import miniJava.SyntacticAnalyzer.SymbolTable;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+// The saved result of compiling one source, as stored by CompileCache. An
+//  entry is a memory-mapped file: a header, a table of sections, then the
+//  sections. Everything is big-endian, and strings are an int byte count
+//  followed by UTF-8.
+//
+//   int       MAGIC
+//   int       FORMAT_VERSION
+//   byte[32]  key, the SHA-256 the entry is stored under
+//   long      length of the source
+//   int       number of sections
+//   (int id, long offset, long length) for each section
+//
+// Readers skip sections they do not know, so sections can be added (e.g.
+//  the syntax tree) without a new version. Changing an existing section
+//  needs a new FORMAT_VERSION.
+public class CacheEntry {
+	static final int MAGIC = 0x4D4A4343;	// "MJCC"
+	static final int FORMAT_VERSION = 1;
+	static final int KEY_LENGTH = 32;
+	
+	// Section IDs
+	private static final int DIAGNOSTICS = 1;	// int count, then per diagnostic: code, line, column,
+												//  start, end, byte 1 if offsets resolve through LINES, args
+	private static final int LINES = 2;			// int count, long start of each line
+	private static final int TOKENS = 3;		// int count, byte type[], long start[], int length[], int value[]
+	private static final int SYMBOLS = 4;		// int count, the name of each symbol in ID order
+	private static final int CHARACTERS = 5;	// int count, long start[], byte length[] of multi-byte characters
+	
+	private static final int HEADER_LENGTH = 4 + 4 + KEY_LENGTH + 8 + 4;
+	private static final int SECTION_LENGTH = 4 + 8 + 8;
+	private static final TokenType[] TYPES = TokenType.values();
+	
+	private ByteBuffer _buffer;
+	private long _sourceLength;
+	private int _diagnostics = -1;	// offsets of the sections, -1 if missing
+	private int _lines = -1;
+	private int _tokens = -1;
+	private int _symbols = -1;
+	private int _characters = -1;
+	private List<Diagnostic> _diagnosticList;
+	
+	private CacheEntry(ByteBuffer buffer) {
+		this._buffer = buffer;
+	}
+	
+	// Map the entry at path, or return null if it is not a complete entry of
+	//  this version for key and a source of sourceLength bytes
+	static CacheEntry map(Path path, byte[] key, long sourceLength) throws IOException {
+		MappedByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_LENGTH || channel.size() > Integer.MAX_VALUE) {
+				return null;
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			return null;
+		}
+		for (int i = 0; i < KEY_LENGTH; ++i) {
+			if (buffer.get(8 + i) != key[i]) {
+				return null;
+			}
+		}
+		CacheEntry entry = new CacheEntry(buffer);
+		entry._sourceLength = buffer.getLong(8 + KEY_LENGTH);
+		if (entry._sourceLength != sourceLength) {
+			return null;
+		}
+		
+		int sections = buffer.getInt(8 + KEY_LENGTH + 8);
+		if (sections < 0 || HEADER_LENGTH + (long) sections * SECTION_LENGTH > buffer.capacity()) {
+			return null;
+		}
+		for (int i = 0; i < sections; ++i) {
+			int at = HEADER_LENGTH + i * SECTION_LENGTH;
+			int id = buffer.getInt(at);
+			long offset = buffer.getLong(at + 4);
+			long length = buffer.getLong(at + 12);
+			if (offset < 0 || length < 0 || offset + length > buffer.capacity()) {
+				return null;
+			}
+			switch (id) {
+			case DIAGNOSTICS:
+				entry._diagnostics = (int) offset;
+				break;
+			case LINES:
+				entry._lines = (int) offset;
+				break;
+			case TOKENS:
+				entry._tokens = (int) offset;
+				break;
+			case SYMBOLS:
+				entry._symbols = (int) offset;
+				break;
+			case CHARACTERS:
+				entry._characters = (int) offset;
+				break;
+			default:
+				// A later addition, not needed here
+			}
+		}
+		if (entry._diagnostics < 0 || entry._lines < 0 || entry._characters < 0) {
+			return null;
+		}
+		
+		// Diagnostics are always needed, so a damaged entry is found here
+		try {
+			entry._diagnosticList = entry.readDiagnostics();
+		} catch (RuntimeException e) {
+			return null;
+		}
+		return entry;
+	}
+	
+	public long getSourceLength() {
+		return this._sourceLength;
+	}
+	
+	public LineMap getLines() {
+		ByteBuffer buffer = this._buffer.duplicate();
+		buffer.position(this._lines);
+		long[] starts = new long[buffer.getInt()];
+		buffer.asLongBuffer().get(starts);
+		
+		buffer.position(this._characters);
+		long[] wideStarts = new long[buffer.getInt()];
+		int[] wideLengths = new int[wideStarts.length];
+		buffer.asLongBuffer().get(wideStarts);
+		buffer.position(buffer.position() + 8 * wideStarts.length);
+		for (int i = 0; i < wideLengths.length; ++i) {
+			wideLengths[i] = buffer.get();
+		}
+		return LineMap.of(starts, wideStarts, wideLengths);
+	}
+	
+	// The diagnostics of the compilation, in the order they were reported
+	public List<Diagnostic> getDiagnostics() {
+		return this._diagnosticList;
+	}
+	
+	private List<Diagnostic> readDiagnostics() {
+		ByteBuffer buffer = this._buffer.duplicate();
+		buffer.position(this._diagnostics);
+		int count = buffer.getInt();
+		if (count == 0) {
+			return Collections.emptyList();
+		}
+		
+		LineMap lines = this.getLines();
+		List<Diagnostic> diagnostics = new ArrayList<Diagnostic>(count);
+		for (int i = 0; i < count; ++i) {
+			DiagnosticCode code = DiagnosticCode.forCode(readString(buffer));
+			if (code == null) {
+				throw new IllegalStateException("Unknown diagnostic code");
+			}
+			int line = buffer.getInt();
+			int column = buffer.getInt();
+			long start = buffer.getLong();
+			long end = buffer.getLong();
+			boolean positioned = buffer.get() != 0;
+			Object[] args = new Object[buffer.getInt()];
+			for (int j = 0; j < args.length; ++j) {
+				args[j] = readString(buffer);
+			}
+			diagnostics.add(positioned ? new Diagnostic(code, lines, start, end, args)
+					: new Diagnostic(code, line, column, start, end, args));
+		}
+		return Collections.unmodifiableList(diagnostics);
+	}
+	
+	// Report the diagnostics to errors as a compilation would have
+	public void replay(ErrorReporter errors) {
+		for (Diagnostic diagnostic : this._diagnosticList) {
+			errors.report(diagnostic);
+		}
+	}
+	
+	// The tokens of source, which must be the source the entry was made from,
+	//  or null if they were not saved. Lexical errors are not attached to the
+	//  tokens, they are among getDiagnostics().
+	public TokenBuffer getTokens(SourceInput source) {
+		if (this._tokens < 0 || this._symbols < 0) {
+			return null;
+		}
+		ByteBuffer buffer = this._buffer.duplicate();
+		buffer.position(this._symbols);
+		SymbolTable symbols = new SymbolTable();
+		for (int i = buffer.getInt(); i > 0; --i) {
+			symbols.intern(readString(buffer));
+		}
+		
+		buffer.position(this._tokens);
+		int count = buffer.getInt();
+		int types = buffer.position();
+		int starts = types + count;
+		int lengths = starts + count * 8;
+		int values = lengths + count * 4;
+		TokenBuffer tokens = new TokenBuffer(source, symbols, this.getLines());
+		for (int i = 0; i < count; ++i) {
+			tokens.add(TYPES[buffer.get(types + i)], buffer.getLong(starts + i * 8),
+					buffer.getInt(lengths + i * 4), buffer.getInt(values + i * 4));
+		}
+		return tokens;
+	}
+	
+	// Write an entry for a compilation of a source of sourceLength bytes
+	static void write(OutputStream out, byte[] key, long sourceLength, TokenBuffer tokens, List<Diagnostic> diagnostics) throws IOException {
+		byte[] diagnosticSection = diagnosticSection(diagnostics);
+		byte[] symbolSection = symbolSection(tokens.getSymbols());
+		LineMap lines = tokens.getLines();
+		long linesLength = 4 + 8L * lines.lineCount();
+		long tokensLength = 4 + (1L + 8 + 4 + 4) * tokens.size();
+		long charactersLength = 4 + (8L + 1) * lines.wideCount();
+		
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		data.write(key);
+		data.writeLong(sourceLength);
+		data.writeInt(5);
+		long offset = HEADER_LENGTH + 5 * SECTION_LENGTH;
+		offset = writeSection(data, DIAGNOSTICS, offset, diagnosticSection.length);
+		offset = writeSection(data, LINES, offset, linesLength);
+		offset = writeSection(data, TOKENS, offset, tokensLength);
+		offset = writeSection(data, SYMBOLS, offset, symbolSection.length);
+		writeSection(data, CHARACTERS, offset, charactersLength);
+		
+		data.write(diagnosticSection);
+		data.writeInt(lines.lineCount());
+		for (int line = 1; line <= lines.lineCount(); ++line) {
+			data.writeLong(lines.lineStart(line));
+		}
+		data.writeInt(tokens.size());
+		for (int i = 0; i < tokens.size(); ++i) {
+			data.writeByte(tokens.type(i).ordinal());
+		}
+		for (int i = 0; i < tokens.size(); ++i) {
+			data.writeLong(tokens.start(i));
+		}
+		for (int i = 0; i < tokens.size(); ++i) {
+			data.writeInt(tokens.length(i));
+		}
+		for (int i = 0; i < tokens.size(); ++i) {
+			data.writeInt(tokens.value(i));
+		}
+		data.write(symbolSection);
+		data.writeInt(lines.wideCount());
+		for (int i = 0; i < lines.wideCount(); ++i) {
+			data.writeLong(lines.wideStart(i));
+		}
+		for (int i = 0; i < lines.wideCount(); ++i) {
+			data.writeByte(lines.wideLength(i));
+		}
+		data.flush();
+	}
+	
+	private static long writeSection(DataOutputStream data, int id, long offset, long length) throws IOException {
+		data.writeInt(id);
+		data.writeLong(offset);
+		data.writeLong(length);
+		return offset + length;
+	}
+	
+	private static byte[] diagnosticSection(List<Diagnostic> diagnostics) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(diagnostics.size());
+		for (Diagnostic diagnostic : diagnostics) {
+			boolean positioned = diagnostic.getLines() != null;
+			writeString(data, diagnostic.getCode().getCode());
+			data.writeInt(positioned ? 0 : diagnostic.getLine());
+			data.writeInt(positioned ? 0 : diagnostic.getColumn());
+			data.writeLong(diagnostic.getStart());
+			data.writeLong(diagnostic.getEnd());
+			data.writeByte(positioned ? 1 : 0);
+			// Arguments are only ever formatted with %s, so their text is enough
+			Object[] args = diagnostic.getArguments();
+			data.writeInt(args.length);
+			for (Object arg : args) {
+				writeString(data, String.valueOf(arg));
+			}
+		}
+		data.flush();
+		return bytes.toByteArray();
+	}
+	
+	private static byte[] symbolSection(SymbolTable symbols) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(bytes);
+		data.writeInt(symbols.size());
+		for (int id = 0; id < symbols.size(); ++id) {
+			writeString(data, symbols.name(id));
+		}
+		data.flush();
+		return bytes.toByteArray();
+	}
+	
+	private static void writeString(DataOutputStream data, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+	
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
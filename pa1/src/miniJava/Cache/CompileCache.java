@@ -0,0 +1,205 @@
+package miniJava.Cache;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import miniJava.Diagnostic;
+import miniJava.SyntacticAnalyzer.SourceInput;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+// An on-disk cache of compilation results, keyed by the SHA-256 of the source.
+//  Each result is one CacheEntry file named after its key.
+//
+// Several compiler processes may share a directory. An entry is written to
+//  a temporary file and moved into place atomically, so readers only ever see
+//  complete entries, and anything unreadable is treated as a miss. The cache
+//  is kept under its size limit by deleting the least recently used entries,
+//  which one process at a time does while holding a lock on LOCK_FILE.
+//  A hit touches the entry's modification time, which is what "recently
+//  used" goes by.
+public class CompileCache {
+	public static final long DEFAULT_MAX_SIZE = 256L << 20;
+	
+	// Part of every key. Bump it whenever the compiler's output for the same
+	//  source changes, so entries made by older compilers are not used.
+	private static final int COMPILER_REVISION = 2;
+	
+	// Larger sources are not cached, their entries could not be mapped at once
+	private static final long MAX_SOURCE_LENGTH = 64L << 20;
+	
+	private static final String SUFFIX = ".mjc";
+	private static final String LOCK_FILE = "cache.lock";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	private Path _dir;
+	private long _maxSize;
+	private long _size = -1;	// this process's estimate of the total size, -1 until counted
+	
+	public CompileCache(Path dir, long maxSize) throws IOException {
+		this._dir = Files.createDirectories(dir);
+		this._maxSize = maxSize;
+	}
+	
+	public Path getDirectory() {
+		return this._dir;
+	}
+	
+	public boolean accepts(SourceInput source) {
+		return source.length() >= 0 && source.length() <= MAX_SOURCE_LENGTH;
+	}
+	
+	// The key source is stored under
+	public byte[] key(SourceInput source) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IOException(e);
+		}
+		digest.update(new byte[] { (byte) CacheEntry.FORMAT_VERSION, (byte) COMPILER_REVISION });
+		source.digest(digest);
+		return digest.digest();
+	}
+	
+	// The entry for key, or null if there is none for a source of sourceLength bytes
+	public CacheEntry lookup(byte[] key, long sourceLength) {
+		Path path = this.path(key);
+		CacheEntry entry;
+		try {
+			entry = CacheEntry.map(path, key, sourceLength);
+		} catch (IOException e) {
+			// Missing, or evicted while being opened
+			return null;
+		}
+		if (entry == null) {
+			// Damaged or from another version, make room for a good one
+			this.delete(path);
+			return null;
+		}
+		try {
+			Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+		} catch (IOException e) {
+			// Only affects which entries are evicted first
+		}
+		return entry;
+	}
+	
+	// Save the tokens and diagnostics of compiling a source, under key. Failing
+	//  to save only means the source is compiled again next time.
+	public void store(byte[] key, SourceInput source, TokenBuffer tokens, List<Diagnostic> diagnostics) {
+		Path target = this.path(key);
+		Path temp = null;
+		try {
+			temp = Files.createTempFile(this._dir, target.getFileName().toString(), ".tmp");
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+				CacheEntry.write(out, key, source.length(), tokens, diagnostics);
+			}
+			long size = Files.size(temp);
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+			this.added(size);
+		} catch (IOException e) {
+			// e.g. the disk is full or the directory went away
+		} finally {
+			if (temp != null) {
+				this.delete(temp);
+			}
+		}
+	}
+	
+	private synchronized void added(long size) throws IOException {
+		if (this._size < 0) {
+			this._size = this.evict();
+		} else {
+			this._size += size;
+			if (this._size > this._maxSize) {
+				this._size = this.evict();
+			}
+		}
+	}
+	
+	// Delete the least recently used entries until the cache fits its limit.
+	//  Returns the size left.
+	private long evict() throws IOException {
+		try (FileChannel channel = FileChannel.open(this._dir.resolve(LOCK_FILE),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+			FileLock lock = channel.lock();
+			try {
+				List<Path> entries = new ArrayList<Path>();
+				List<BasicFileAttributes> attributes = new ArrayList<BasicFileAttributes>();
+				long total = 0;
+				try (DirectoryStream<Path> files = Files.newDirectoryStream(this._dir, "*" + SUFFIX)) {
+					for (Path file : files) {
+						try {
+							BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+							entries.add(file);
+							attributes.add(attrs);
+							total += attrs.size();
+						} catch (IOException e) {
+							// Deleted by another process meanwhile
+						}
+					}
+				}
+				if (total <= this._maxSize) {
+					return total;
+				}
+				
+				Integer[] order = new Integer[entries.size()];
+				for (int i = 0; i < order.length; ++i) {
+					order[i] = i;
+				}
+				java.util.Arrays.sort(order, Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+				for (int i = 0; i < order.length && total > this._maxSize; ++i) {
+					if (this.delete(entries.get(order[i]))) {
+						total -= attributes.get(order[i]).size();
+					}
+				}
+				return total;
+			} finally {
+				lock.release();
+			}
+		} catch (OverlappingFileLockException e) {
+			// Another CompileCache on the same directory in this process is evicting
+			return 0;
+		}
+	}
+	
+	private boolean delete(Path path) {
+		try {
+			return Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// e.g. still mapped on a platform that does not allow deleting it
+			return false;
+		}
+	}
+	
+	private Path path(byte[] key) {
+		char[] name = new char[key.length * 2];
+		for (int i = 0; i < key.length; ++i) {
+			name[2 * i] = HEX[(key[i] >> 4) & 0xF];
+			name[2 * i + 1] = HEX[key[i] & 0xF];
+		}
+		return this._dir.resolve(new String(name) + SUFFIX);
+	}
+}
@@ -0,0 +1,142 @@
+package miniJava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Drop-in replacement for Compiler.main that forwards the request to a running
+//  CompileDaemon and prints the same output. Without a daemon it compiles in-process.
+//  Usage: CompileClient file... | CompileClient --stop
+public class CompileClient {
+	private static class FileResult {
+		String _path;
+		String _status;
+		List<String> _diagnostics = new ArrayList<String>();
+	}
+	
+	public static void main(String[] args) {
+		Path portFile = CompileDaemon.defaultPortFile();
+		String[] endpoint = readPortFile(portFile);
+		
+		if (args.length > 0 && args[0].equals("--stop")) {
+			if (endpoint != null) {
+				try {
+					request(endpoint, "STOP", new ArrayList<String>());
+				} catch (IOException e) {
+					// Already gone
+				}
+			}
+			return;
+		}
+		
+		// The daemon only speaks the default output, options compile in-process
+		if (endpoint == null || (args.length > 0 && args[0].startsWith("--"))) {
+			Compiler.main(args);
+			return;
+		}
+		
+		boolean batch = Compiler.isBatch(args);
+		List<String> names = new ArrayList<String>();
+		List<String> paths = new ArrayList<String>();
+		try {
+			// Resolve relative to the client's working directory, not the daemon's
+			names = BatchCompiler.expand(args);
+			for (String name : names) {
+				paths.add(Paths.get(name).toAbsolutePath().toString());
+			}
+		} catch (IOException e) {
+			System.out.println("Error: File Not Found");
+			System.exit(1);
+		}
+		if (paths.isEmpty() && !batch) {
+			System.out.println("Error: File Not Found");
+			return;
+		}
+		
+		List<FileResult> results;
+		try {
+			results = request(endpoint, "COMPILE", paths);
+		} catch (IOException e) {
+			// Stale port file, the daemon is not running
+			Compiler.main(args);
+			return;
+		}
+		
+		int failed = 0;
+		for (int i = 0; i < results.size(); ++i) {
+			FileResult result = results.get(i);
+			// Report the path the way the user wrote it
+			String prefix = batch ? names.get(i) + ": " : "";
+			if (result._status.equals("NotFound")) {
+				System.out.println(prefix + "Error: File Not Found");
+			} else {
+				System.out.println(prefix + result._status);
+				for (String diagnostic : result._diagnostics) {
+					System.out.println(diagnostic);
+				}
+			}
+			if (!result._status.equals("Success")) {
+				failed += 1;
+			}
+		}
+		
+		if (batch) {
+			System.out.println("Compiled " + results.size() + " files: "
+					+ (results.size() - failed) + " succeeded, " + failed + " failed");
+			System.exit(failed == 0 ? 0 : 1);
+		}
+	}
+	
+	private static String[] readPortFile(Path portFile) {
+		try {
+			String[] endpoint = new String(Files.readAllBytes(portFile), StandardCharsets.UTF_8).trim().split(" ");
+			return endpoint.length == 2 ? endpoint : null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private static List<FileResult> request(String[] endpoint, String command, List<String> paths) throws IOException {
+		List<FileResult> results = new ArrayList<FileResult>();
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(endpoint[0]));
+				BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)))) {
+			out.println(endpoint[1]);
+			out.println(command);
+			for (String path : paths) {
+				out.println(path);
+			}
+			out.println();
+			out.flush();
+			
+			FileResult current = null;
+			String line;
+			while ((line = in.readLine()) != null && !line.equals("DONE")) {
+				if (line.startsWith("FILE ")) {
+					current = new FileResult();
+					current._path = CompileDaemon.unescape(line.substring(5));
+					results.add(current);
+				} else if (line.startsWith("STATUS ") && current != null) {
+					current._status = line.substring(7);
+				} else if (line.startsWith("DIAG ") && current != null) {
+					current._diagnostics.add(CompileDaemon.unescape(line.substring(5)));
+				}
+			}
+			if (line == null) {
+				throw new IOException("Daemon closed the connection");
+			}
+		}
+		return results;
+	}
+}
@@ -0,0 +1,202 @@
+package miniJava;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+// A resident compiler. It listens on the loopback interface and writes its
+//  port and a random access token to a file only the current user can read;
+//  CompileClient finds it there. Keeping the JVM alive means requests run on a
+//  warmed-up Scanner and Parser instead of paying startup on every file.
+//
+// Request (one line each): token, command (COMPILE or STOP), then for COMPILE
+//  one absolute path per line and an empty line.
+// Response per file: FILE path, STATUS Success|Error|NotFound, a DIAG line
+//  for every error, followed by DONE once all files are reported. Paths and
+//  errors are sent escape()d, as an error can quote a line break.
+public class CompileDaemon {
+	private Path _portFile;
+	private String _token;
+	private ServerSocket _server;
+	private ExecutorService _clients;
+	private ForkJoinPool _pool;
+	private volatile boolean _running = true;
+	
+	public CompileDaemon(Path portFile) {
+		this._portFile = portFile;
+		
+		byte[] secret = new byte[16];
+		new SecureRandom().nextBytes(secret);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : secret) {
+			sb.append(String.format("%02x", b));
+		}
+		this._token = sb.toString();
+	}
+	
+	// Keep text on one line: \ becomes \\, and line breaks \n and \r
+	static String escape(String text) {
+		if (text.indexOf('\\') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder(text.length() + 8);
+		for (int i = 0; i < text.length(); ++i) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+	
+	// Undo escape()
+	static String unescape(String text) {
+		if (text.indexOf('\\') < 0) {
+			return text;
+		}
+		StringBuilder sb = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); ++i) {
+			char c = text.charAt(i);
+			if (c == '\\' && i + 1 < text.length()) {
+				c = text.charAt(++i);
+				if (c == 'n') {
+					c = '\n';
+				} else if (c == 'r') {
+					c = '\r';
+				}
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+	
+	public static Path defaultPortFile() {
+		return Paths.get(System.getProperty("java.io.tmpdir"), "minijava-daemon-" + System.getProperty("user.name") + ".port");
+	}
+	
+	// Usage: --daemon [portFile]
+	public static void main(String[] args) {
+		Path portFile = args.length > 1 ? Paths.get(args[1]) : defaultPortFile();
+		try {
+			new CompileDaemon(portFile).serve();
+		} catch (IOException e) {
+			System.out.println("Error: " + e.getMessage());
+			System.exit(1);
+		}
+	}
+	
+	public void serve() throws IOException {
+		this._server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		this._clients = Executors.newCachedThreadPool(r -> {
+			Thread thread = new Thread(r, "minijava-client");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this._pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+		this.writePortFile();
+		
+		try {
+			while (this._running) {
+				Socket socket;
+				try {
+					socket = this._server.accept();
+				} catch (IOException e) {
+					// The server socket is closed by STOP
+					break;
+				}
+				this._clients.execute(() -> this.handle(socket));
+			}
+		} finally {
+			this._clients.shutdown();
+			this._pool.shutdown();
+			Files.deleteIfExists(this._portFile);
+		}
+	}
+	
+	private void writePortFile() throws IOException {
+		Path tmp = this._portFile.resolveSibling(this._portFile.getFileName() + ".tmp");
+		Files.deleteIfExists(tmp);
+		try {
+			Files.createFile(tmp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+		} catch (UnsupportedOperationException e) {
+			Files.createFile(tmp);
+		}
+		Files.write(tmp, (this._server.getLocalPort() + " " + this._token + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.move(tmp, this._portFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private void handle(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8)))) {
+			if (!this._token.equals(in.readLine())) {
+				return;
+			}
+			
+			String command = in.readLine();
+			if ("STOP".equals(command)) {
+				this._running = false;
+				this._server.close();
+				out.println("DONE");
+				return;
+			}
+			if (!"COMPILE".equals(command)) {
+				return;
+			}
+			
+			List<String> paths = new ArrayList<String>();
+			String line;
+			while ((line = in.readLine()) != null && !line.isEmpty()) {
+				paths.add(line);
+			}
+			
+			for (BatchCompiler.Result result : new BatchCompiler(paths).compile(this._pool)) {
+				out.println("FILE " + escape(result.getPath()));
+				if (!result.isFound()) {
+					out.println("STATUS NotFound");
+				} else if (result.getErrors().hasErrors()) {
+					out.println("STATUS Error");
+					for (String error : result.getErrors().getErrors()) {
+						out.println("DIAG " + escape(error));
+					}
+					if (result.getErrors().isLimitReached()) {
+						out.println("DIAG " + escape(result.getErrors().getLimitMessage()));
+					}
+				} else {
+					out.println("STATUS Success");
+				}
+			}
+			out.println("DONE");
+		} catch (IOException e) {
+			// The client went away, nothing to report to
+		}
+	}
+}
@@ -1,43 +1,352 @@
 package miniJava;
 
-import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
+import miniJava.AbstractSyntaxTrees.SyntaxTree;
+import miniJava.Cache.CacheEntry;
+import miniJava.Cache.CompileCache;
+import miniJava.ContextualAnalysis.Identification;
+import miniJava.Statistics.CompilePhase;
+import miniJava.Statistics.CompileStats;
+import miniJava.SyntacticAnalyzer.ParallelParser;
 import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.PipelinedScanner;
 import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceArchive;
+import miniJava.SyntacticAnalyzer.SourceInput;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
 
 public class Compiler {
+	// Sources at least this large are scanned up front and parsed class by class in parallel
+	private static final long PARALLEL_THRESHOLD = 1 << 20;
+	// Sources at least this large are scanned on a second thread while being parsed
+	private static final long PIPELINE_THRESHOLD = 1 << 16;
+	
 	// Main function, the file to compile will be an argument.
+	//  Several files, a directory, a zip or jar archive or an @response file
+	//  compile as a batch.
 	public static void main(String[] args) {
+		if (args.length > 0 && args[0].equals("--daemon")) {
+			// Stay resident and serve compile requests, see CompileClient
+			CompileDaemon.main(args);
+			return;
+		}
+		
+		// Leading options: --diagnostics=text|json, --max-errors=N,
+		//  --stats[=file] for a JSON line of statistics per file, and
+		//  --cache=DIR with --cache-size=N[k|m|g] to reuse earlier results,
+		//  and --identify to also check names against their declarations
+		boolean json = false;
+		boolean identify = false;
+		int errorLimit = ErrorReporter.DEFAULT_LIMIT;
+		PrintStream statsOut = null;
+		String cacheDir = null;
+		long cacheSize = CompileCache.DEFAULT_MAX_SIZE;
+		int first = 0;
+		for (; first < args.length && args[first].startsWith("--"); ++first) {
+			String option = args[first];
+			if (option.equals("--diagnostics=json")) {
+				json = true;
+			} else if (option.equals("--diagnostics=text")) {
+				json = false;
+			} else if (option.startsWith("--max-errors=") && isCount(option.substring(13))) {
+				errorLimit = Integer.parseInt(option.substring(13));
+			} else if (option.equals("--stats")) {
+				statsOut = System.err;
+			} else if (option.startsWith("--stats=")) {
+				try {
+					statsOut = new PrintStream(new FileOutputStream(option.substring(8)), true);
+				} catch (IOException e) {
+					System.out.println("Error: Cannot write " + option.substring(8));
+					System.exit(1);
+				}
+			} else if (option.startsWith("--cache=") && option.length() > 8) {
+				cacheDir = option.substring(8);
+			} else if (option.startsWith("--cache-size=") && parseSize(option.substring(13)) > 0) {
+				cacheSize = parseSize(option.substring(13));
+			} else if (option.equals("--identify")) {
+				identify = true;
+			} else {
+				System.out.println("Error: Unknown option " + option);
+				System.exit(1);
+			}
+		}
+		args = Arrays.copyOfRange(args, first, args.length);
+		
+		CompileCache cache = null;
+		if (cacheDir != null) {
+			try {
+				cache = new CompileCache(Paths.get(cacheDir), cacheSize);
+			} catch (IOException e) {
+				System.out.println("Error: Cannot use cache " + cacheDir);
+				System.exit(1);
+			}
+		}
+		
+		if (isBatch(args)) {
+			try {
+				BatchCompiler batch = new BatchCompiler(BatchCompiler.expand(args));
+				batch.setErrorLimit(errorLimit);
+				batch.setJson(json);
+				batch.setStats(statsOut);
+				batch.setCache(cache);
+				batch.setIdentify(identify);
+				System.exit(batch.run(System.out));
+			} catch (Exception e) {
+				System.out.println("Error: File Not Found");
+				System.exit(1);
+			}
+			return;
+		}
+		
 		// Instantiate the ErrorReporter object
 		ErrorReporter _errors = new ErrorReporter();
+		_errors.setErrorLimit(errorLimit);
 		
 		// Check to make sure a file path is given in args
+		String filePath = args.length > 0 ? args[0] : "";
+		CompileStats stats = statsOut != null || CompileStats.isRecording() ? new CompileStats(filePath) : null;
 		try {
-			String filePath = args[0];
-			
-			// Create the inputStream using new FileInputStream
-			FileInputStream inputStream = new FileInputStream(filePath);
-			
-			// Instantiate the scanner with the input stream and error object
-			Scanner scanner = new Scanner(inputStream, _errors);
+			// Map the file into memory rather than reading it byte by byte
+			if (stats != null) {
+				stats.begin(CompilePhase.Read);
+			}
+			SourceInput source = SourceInput.open(filePath);
+			if (stats != null) {
+				stats.end(source.length(), 0);
+			}
 			
-			// Instantiate the parser with the scanner and error object
-			Parser parser = new Parser(scanner, _errors);
+			// Errors are printed as they are found, "Error" goes before the first one
+			if (json) {
+				_errors.setSink(new JsonDiagnosticSink(System.out, filePath));
+			} else {
+				_errors.setSink(new TextDiagnosticSink(System.out, "Error"));
+			}
 			
-			// Call the parser's parse function
-			parser.parse();
+			// Scan and parse the source
+			compile(source, _errors, stats, cache, identify);
+			source.close();
+			if (stats != null) {
+				stats.commitCounts();
+				if (statsOut != null) {
+					stats.output(statsOut);
+				}
+			}
 			
-			// Check if any errors exist, if so, println("Error")
-			//  then output the errors
-			if (_errors.hasErrors()) {
-				System.out.println("Error");
-				_errors.outputErrors();
-			} else {
-				// If there are no errors, println("Success")
+			// If there are no errors, println("Success")
+			if (!json && !_errors.hasErrors()) {
 				System.out.println("Success");
+			} else if (!json && _errors.isLimitReached()) {
+				System.out.println(_errors.getLimitMessage());
 			}
 		} catch (Exception e) {
-			System.out.println("Error: File Not Found");
+			if (json) {
+				new JsonDiagnosticSink(System.out, filePath).report(BatchCompiler.fileNotFound());
+			} else {
+				System.out.println("Error: File Not Found");
+			}
+		}
+	}
+	
+	// Compile one source, reporting into errors. Returns true on success.
+	//  Compilation stops early once errors reaches its error limit.
+	public static boolean compile(SourceInput source, ErrorReporter errors) {
+		return compile(source, errors, null);
+	}
+	
+	// As above, recording into stats unless it is null
+	public static boolean compile(SourceInput source, ErrorReporter errors, CompileStats stats) {
+		return compile(source, errors, stats, null);
+	}
+	
+	// As above, reusing the results of an earlier compile of the same source
+	//  from cache, or saving them there, unless cache is null
+	public static boolean compile(SourceInput source, ErrorReporter errors, CompileStats stats, CompileCache cache) {
+		return compile(source, errors, stats, cache, false);
+	}
+	
+	// As above, going on to identification if identify is set and the source
+	//  parses. The cache only holds syntax results, so it is not used then.
+	public static boolean compile(SourceInput source, ErrorReporter errors, CompileStats stats, CompileCache cache,
+			boolean identify) {
+		try {
+			if (identify) {
+				return identify(source, errors, stats);
+			}
+			if (cache == null || !cache.accepts(source)) {
+				return stats != null ? scanFirst(source, errors, stats) != null : parse(source, errors);
+			}
+			return cached(source, errors, stats, cache);
+		} catch (ErrorReporter.LimitReached e) {
+			return false;
+		}
+	}
+	
+	private static boolean cached(SourceInput source, ErrorReporter errors, CompileStats stats, CompileCache cache) {
+		if (stats != null) {
+			stats.begin(CompilePhase.Cache);
+		}
+		byte[] key;
+		try {
+			key = cache.key(source);
+		} catch (IOException e) {
+			if (stats != null) {
+				stats.end(0, 0);
+			}
+			return scanFirst(source, errors, stats) != null;
 		}
+		CacheEntry entry = cache.lookup(key, source.length());
+		if (entry != null) {
+			entry.replay(errors);
+			if (stats != null) {
+				stats.end(source.length(), 0);
+			}
+			return !errors.hasErrors();
+		}
+		if (stats != null) {
+			stats.end(0, 0);
+		}
+		
+		// Only what this compile reports goes into the entry
+		int reported = errors.getDiagnostics().size();
+		TokenBuffer tokens = scanFirst(source, errors, stats);
+		if (!errors.isLimitReached()) {
+			List<Diagnostic> diagnostics = errors.getDiagnostics();
+			cache.store(key, source, tokens, diagnostics.subList(reported, diagnostics.size()));
+		}
+		return !errors.hasErrors();
+	}
+	
+	// Scan the whole source up front, then parse it. Statistics need this so
+	//  scanning and parsing can be timed apart, and the cache to save the tokens.
+	//  The errors are the same either way.
+	private static TokenBuffer scanFirst(SourceInput source, ErrorReporter errors, CompileStats stats) {
+		Scanner scanner = new Scanner(source, errors);
+		if (stats != null) {
+			stats.begin(CompilePhase.Scan);
+		}
+		TokenBuffer tokens = scanner.scanAll();
+		if (stats != null) {
+			stats.end(source.length(), tokens.size());
+			stats.countTokens(tokens);
+			stats.begin(CompilePhase.Parse);
+		}
+		
+		int[] counts = stats != null ? stats.getProductionCounts() : null;
+		if (source.length() >= PARALLEL_THRESHOLD) {
+			ParallelParser parser = new ParallelParser(tokens, errors);
+			parser.setProductionCounts(counts);
+			parser.parse();
+		} else {
+			Parser parser = new Parser(tokens.cursor(), errors);
+			parser.setProductionCounts(counts);
+			parser.parse();
+		}
+		if (stats != null) {
+			stats.end(0, tokens.size());
+		}
+		return tokens;
+	}
+	
+	// Scan, parse into a SyntaxTree, then identify if there were no errors
+	private static boolean identify(SourceInput source, ErrorReporter errors, CompileStats stats) {
+		Scanner scanner = new Scanner(source, errors);
+		if (stats != null) {
+			stats.begin(CompilePhase.Scan);
+		}
+		TokenBuffer tokens = scanner.scanAll();
+		if (stats != null) {
+			stats.end(source.length(), tokens.size());
+			stats.countTokens(tokens);
+			stats.begin(CompilePhase.Parse);
+		}
+		Parser parser = new Parser(tokens.cursor(), errors);
+		parser.setProductionCounts(stats != null ? stats.getProductionCounts() : null);
+		parser.setBuildTree(true);
+		parser.parse();
+		if (stats != null) {
+			stats.end(0, tokens.size());
+		}
+		if (errors.hasErrors()) {
+			return false;
+		}
+		
+		if (stats != null) {
+			stats.begin(CompilePhase.Identify);
+		}
+		SyntaxTree tree = parser.getTree();
+		new Identification(tree, errors).identify();
+		if (stats != null) {
+			stats.end(0, tree.size());
+		}
+		return !errors.hasErrors();
+	}
+	
+	private static boolean parse(SourceInput source, ErrorReporter errors) {
+		// Instantiate the scanner with the source and error object
+		Scanner scanner = new Scanner(source, errors);
+		
+		if (source.length() >= PARALLEL_THRESHOLD) {
+			new ParallelParser(scanner.scanAll(), errors).parse();
+			return !errors.hasErrors();
+		}
+		
+		// Not worth a thread when batch compilation already keeps the cores busy
+		if (source.length() >= PIPELINE_THRESHOLD && Runtime.getRuntime().availableProcessors() > 1
+				&& !ForkJoinTask.inForkJoinPool()) {
+			try (PipelinedScanner tokens = new PipelinedScanner(scanner)) {
+				new Parser(tokens, errors).parse();
+			}
+			return !errors.hasErrors();
+		}
+		
+		// Instantiate the parser with the scanner and error object
+		Parser parser = new Parser(scanner, errors);
+		
+		// Call the parser's parse function
+		parser.parse();
+		
+		return !errors.hasErrors();
+	}
+	
+	private static boolean isCount(String s) {
+		return s.matches("[1-9][0-9]{0,8}");
+	}
+	
+	// A size in bytes, optionally in k, m or g units, or -1 if s is not one
+	private static long parseSize(String s) {
+		if (!s.matches("[0-9]{1,12}[kKmMgG]?")) {
+			return -1;
+		}
+		int shift = 0;
+		switch (Character.toLowerCase(s.charAt(s.length() - 1))) {
+		case 'k':
+			shift = 10;
+			break;
+		case 'm':
+			shift = 20;
+			break;
+		case 'g':
+			shift = 30;
+			break;
+		}
+		long value = Long.parseLong(shift > 0 ? s.substring(0, s.length() - 1) : s);
+		// Too large to shift into a long
+		if (value > Long.MAX_VALUE >> shift) {
+			return -1;
+		}
+		return value << shift;
+	}
+	
+	static boolean isBatch(String[] args) {
+		return args.length > 1 || (args.length == 1 && (args[0].startsWith("@") || Files.isDirectory(Paths.get(args[0]))
+				|| (SourceArchive.isArchive(args[0]) && Files.isRegularFile(Paths.get(args[0])))));
 	}
 }
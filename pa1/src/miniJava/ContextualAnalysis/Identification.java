@@ -0,0 +1,424 @@
+package miniJava.ContextualAnalysis;
+
+import java.util.Arrays;
+
+import miniJava.Diagnostic;
+import miniJava.DiagnosticCode;
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.NodeKind;
+import miniJava.AbstractSyntaxTrees.SyntaxTree;
+import miniJava.AbstractSyntaxTrees.SyntaxTreeVisitor;
+import miniJava.SyntacticAnalyzer.SymbolTable;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+// Links the names in a SyntaxTree to their declarations, and reports names
+//  that are not declared, declared twice, or used where they cannot be.
+//
+// Scopes nest as in miniJava: the classes, a class's members, a method's
+//  parameters, then its blocks. A local variable may not hide a parameter or
+//  another local. The member after a dot is found in the class of the
+//  reference before it, so each class also keeps its members in a table of
+//  its own.
+//
+// Declarations are numbered and kept in parallel arrays, like the tree's
+//  nodes. String, System and _PrintStream are declared before the program's
+//  classes, and have no node.
+public class Identification implements SyntaxTreeVisitor {
+	public static final int NONE = -1;
+	
+	// Kinds of declarations
+	public static final byte CLASS = 0;
+	public static final byte FIELD = 1;
+	public static final byte METHOD = 2;
+	public static final byte PARAMETER = 3;
+	public static final byte LOCAL = 4;
+	public static final byte LENGTH = 5;	// length of any array
+	
+	// Declaration flags
+	private static final byte STATIC = 1;
+	private static final byte PRIVATE = 2;
+	private static final byte ARRAY = 4;	// its type is an array
+	
+	// Level of the scope a method's parameters are declared in, see identify()
+	private static final int PARAMETER_LEVEL = 3;
+	
+	private SyntaxTree _tree;
+	private TokenBuffer _tokens;
+	private ErrorReporter _errors;
+	private ScopedSymbolTable _scopes = new ScopedSymbolTable();
+	private int _errorCount;
+	
+	// Declarations
+	private byte[] _kinds = new byte[64];
+	private byte[] _flags = new byte[64];
+	private int[] _nodes = new int[64];		// declaring node, or NONE
+	private int[] _names = new int[64];
+	private int[] _owners = new int[64];	// class declaring a member, or NONE
+	private int[] _types = new int[64];		// class of the declared type, or NONE
+	private int _count;
+	
+	// Classes and their members by (owner << 32 | symbol), classes having owner NONE
+	private long[] _memberKeys = new long[64];
+	private int[] _members = new int[64];	// declaration + 1, or 0 when empty
+	private int _memberMask = 63;
+	private int _memberCount;
+	
+	// Declaration each node names or declares, or NONE
+	private int[] _resolved;
+	
+	private int _length;
+	private int _lengthSymbol;
+	
+	// Where the walk is
+	private int _class = NONE;
+	private boolean _static;		// in a static method
+	private int _initializing = NONE;	// local whose initializer is being walked
+	
+	public Identification(SyntaxTree tree, ErrorReporter errors) {
+		this._tree = tree;
+		this._tokens = tree.getTokens();
+		this._errors = errors;
+		this._resolved = new int[tree.size()];
+		Arrays.fill(this._resolved, NONE);
+		this._lengthSymbol = this._tokens.getSymbols().intern("length");
+	}
+	
+	public int getErrorCount() {
+		return this._errorCount;
+	}
+	
+	// Declaration node names or declares, or NONE
+	public int declaration(int node) {
+		return this._resolved[node];
+	}
+	
+	public byte kind(int declaration) {
+		return this._kinds[declaration];
+	}
+	
+	// Node declaring declaration, NONE for the built-in ones
+	public int node(int declaration) {
+		return this._nodes[declaration];
+	}
+	
+	public void identify() {
+		int root = this._tree.root();
+		if (root == NONE) {
+			return;
+		}
+		this._scopes.openScope();
+		this.declareBuiltins();
+		for (int c = this._tree.firstChild(root); c != NONE; c = this._tree.nextSibling(c)) {
+			int declaration = this.add(CLASS, c, this._tree.symbol(c), NONE);
+			if (this.declareMember(NONE, declaration, c)) {
+				this._scopes.declare(this._tree.symbol(c), declaration);
+			}
+		}
+		for (int c = this._tree.firstChild(root); c != NONE; c = this._tree.nextSibling(c)) {
+			this.declareMembers(c);
+		}
+		for (int c = this._tree.firstChild(root); c != NONE; c = this._tree.nextSibling(c)) {
+			this.identifyClass(c);
+		}
+		this._scopes.closeScope();
+	}
+	
+	// class String { }
+	// class System { public static _PrintStream out; }
+	// class _PrintStream { public void println(int n) { } }
+	private void declareBuiltins() {
+		SymbolTable symbols = this._tokens.getSymbols();
+		int string = this.add(CLASS, NONE, symbols.intern("String"), NONE);
+		int system = this.add(CLASS, NONE, symbols.intern("System"), NONE);
+		int printStream = this.add(CLASS, NONE, symbols.intern("_PrintStream"), NONE);
+		for (int c : new int[] { string, system, printStream }) {
+			this.declareMember(NONE, c, NONE);
+			this._scopes.declare(this._names[c], c);
+		}
+		int out = this.add(FIELD, NONE, symbols.intern("out"), system);
+		this._flags[out] = STATIC;
+		this._types[out] = printStream;
+		this.declareMember(system, out, NONE);
+		int println = this.add(METHOD, NONE, symbols.intern("println"), printStream);
+		this.declareMember(printStream, println, NONE);
+		this._length = this.add(LENGTH, NONE, this._lengthSymbol, NONE);
+	}
+	
+	private void declareMembers(int classNode) {
+		int owner = this._resolved[classNode];
+		for (int m = this._tree.firstChild(classNode); m != NONE; m = this._tree.nextSibling(m)) {
+			NodeKind kind = this._tree.kind(m);
+			int declaration = this.add(kind == NodeKind.MethodDecl ? METHOD : FIELD, m, this._tree.symbol(m), owner);
+			for (int child = this._tree.firstChild(m); child != NONE; child = this._tree.nextSibling(child)) {
+				if (this._tree.kind(child) != NodeKind.Modifier) {
+					this.declareType(declaration, child);
+					break;
+				}
+				TokenType modifier = this._tokens.type(this._tree.token(child));
+				if (modifier == TokenType.Access) {
+					this._flags[declaration] |= STATIC;
+				} else if (this._tree.text(child).equals("private")) {
+					this._flags[declaration] |= PRIVATE;
+				}
+			}
+			this.declareMember(owner, declaration, m);
+		}
+	}
+	
+	private void identifyClass(int classNode) {
+		this._class = this._resolved[classNode];
+		this._scopes.openScope();
+		for (int m = this._tree.firstChild(classNode); m != NONE; m = this._tree.nextSibling(m)) {
+			int declaration = this._resolved[m];
+			if (this.findMember(this._class, this._names[declaration]) == declaration) {
+				this._scopes.declare(this._names[declaration], declaration);
+			}
+		}
+		for (int m = this._tree.firstChild(classNode); m != NONE; m = this._tree.nextSibling(m)) {
+			if (this._tree.kind(m) == NodeKind.MethodDecl) {
+				this.identifyMethod(m);
+			}
+		}
+		this._scopes.closeScope();
+	}
+	
+	private void identifyMethod(int method) {
+		this._static = (this._flags[this._resolved[method]] & STATIC) != 0;
+		this._scopes.openScope();
+		int child = this._tree.firstChild(method);
+		while (child != NONE && this._tree.kind(child) == NodeKind.Modifier) {
+			child = this._tree.nextSibling(child);
+		}
+		child = this._tree.nextSibling(child);
+		for (; child != NONE && this._tree.kind(child) == NodeKind.Parameter; child = this._tree.nextSibling(child)) {
+			this.declareVariable(PARAMETER, child);
+		}
+		
+		// Locals get a scope of their own, so hiding a parameter is told from redeclaring it
+		this._scopes.openScope();
+		for (; child != NONE; child = this._tree.nextSibling(child)) {
+			this._tree.walk(child, this);
+		}
+		this._scopes.closeScope();
+		this._scopes.closeScope();
+	}
+	
+	@Override
+	public boolean enter(SyntaxTree tree, int node) {
+		switch (tree.kind(node)) {
+		case BlockStmt:
+			this._scopes.openScope();
+			return true;
+		case VarDeclStmt:
+			int local = this.declareVariable(LOCAL, node);
+			this._initializing = local;
+			tree.walk(tree.nextSibling(tree.firstChild(node)), this);
+			this._initializing = NONE;
+			return false;
+		case ClassType:
+		case NewObjectExpr:
+			this.resolveClass(node);
+			return false;
+		case ThisRef:
+			if (this._static) {
+				this.error(DiagnosticCode.StaticContext, node, "this");
+			}
+			return false;
+		default:
+			return true;
+		}
+	}
+	
+	@Override
+	public void exit(SyntaxTree tree, int node) {
+		switch (tree.kind(node)) {
+		case BlockStmt:
+			this._scopes.closeScope();
+			break;
+		case IdRef:
+			this.resolveName(node);
+			break;
+		case QualifiedRef:
+			this.resolveMember(node);
+			break;
+		default:
+		}
+	}
+	
+	// Declare a parameter or local, whose first child is its type
+	private int declareVariable(byte kind, int node) {
+		int symbol = this._tree.symbol(node);
+		int declaration = this.add(kind, node, symbol, NONE);
+		this.declareType(declaration, this._tree.firstChild(node));
+		int level = this._scopes.lookupLevel(symbol);
+		if (level == this._scopes.level()) {
+			this.error(DiagnosticCode.DuplicateDeclaration, node, this._tree.text(node));
+		} else if (level >= PARAMETER_LEVEL) {
+			this.error(DiagnosticCode.HiddenVariable, node, this._tree.text(node));
+		}
+		this._scopes.declare(symbol, declaration);
+		return declaration;
+	}
+	
+	private void declareType(int declaration, int type) {
+		if (this._tree.kind(type) == NodeKind.ArrayType) {
+			this._flags[declaration] |= ARRAY;
+			type = this._tree.firstChild(type);
+		}
+		if (this._tree.kind(type) == NodeKind.ClassType) {
+			this._types[declaration] = this.resolveClass(type);
+		}
+	}
+	
+	// Class a ClassType or NewObjectExpr names, looked up past anything hiding it
+	private int resolveClass(int node) {
+		int symbol = this._tree.symbol(node);
+		if (symbol == SymbolTable.NONE) {
+			return NONE;
+		}
+		int declaration = this.findMember(NONE, symbol);
+		if (declaration == NONE) {
+			this.error(DiagnosticCode.UndeclaredIdentifier, node, this._tree.text(node));
+		}
+		this._resolved[node] = declaration;
+		return declaration;
+	}
+	
+	private void resolveName(int node) {
+		int declaration = this._scopes.lookup(this._tree.symbol(node));
+		if (declaration == NONE) {
+			this.error(DiagnosticCode.UndeclaredIdentifier, node, this._tree.text(node));
+			return;
+		}
+		if (declaration == this._initializing) {
+			this.error(DiagnosticCode.SelfInitializer, node, this._tree.text(node));
+		} else if (this._static && this.isMember(declaration) && (this._flags[declaration] & STATIC) == 0) {
+			this.error(DiagnosticCode.StaticContext, node, this._tree.text(node));
+		}
+		this._resolved[node] = declaration;
+	}
+	
+	private void resolveMember(int node) {
+		int qualifier = this._tree.firstChild(node);
+		int symbol = this._tree.symbol(node);
+		int owner;
+		boolean staticOnly = false;
+		if (this._tree.kind(qualifier) == NodeKind.ThisRef) {
+			owner = this._class;
+		} else {
+			int q = this._resolved[qualifier];
+			if (q == NONE) {
+				return;		// already reported
+			}
+			if (this._kinds[q] == CLASS) {
+				owner = q;
+				staticOnly = true;
+			} else if ((this._flags[q] & ARRAY) != 0) {
+				if (symbol == this._lengthSymbol) {
+					this._resolved[node] = this._length;
+				} else {
+					this.error(DiagnosticCode.NoMember, node, this._tree.text(qualifier), this._tree.text(node));
+				}
+				return;
+			} else {
+				owner = this._types[q];
+			}
+		}
+		int member = owner == NONE ? NONE : this.findMember(owner, symbol);
+		if (member == NONE) {
+			this.error(DiagnosticCode.NoMember, node, this._tree.text(qualifier), this._tree.text(node));
+			return;
+		}
+		if ((this._flags[member] & PRIVATE) != 0 && owner != this._class) {
+			this.error(DiagnosticCode.PrivateMember, node, this._tree.text(node), this.name(owner));
+		} else if (staticOnly && (this._flags[member] & STATIC) == 0) {
+			this.error(DiagnosticCode.StaticContext, node, this._tree.text(node));
+		}
+		this._resolved[node] = member;
+	}
+	
+	private boolean isMember(int declaration) {
+		return this._kinds[declaration] == FIELD || this._kinds[declaration] == METHOD;
+	}
+	
+	private String name(int declaration) {
+		return this._tokens.getSymbols().name(this._names[declaration]);
+	}
+	
+	private int add(byte kind, int node, int symbol, int owner) {
+		if (this._count == this._kinds.length) {
+			int capacity = this._count * 2;
+			this._kinds = Arrays.copyOf(this._kinds, capacity);
+			this._flags = Arrays.copyOf(this._flags, capacity);
+			this._nodes = Arrays.copyOf(this._nodes, capacity);
+			this._names = Arrays.copyOf(this._names, capacity);
+			this._owners = Arrays.copyOf(this._owners, capacity);
+			this._types = Arrays.copyOf(this._types, capacity);
+		}
+		int declaration = this._count++;
+		this._kinds[declaration] = kind;
+		this._nodes[declaration] = node;
+		this._names[declaration] = symbol;
+		this._owners[declaration] = owner;
+		this._types[declaration] = NONE;
+		if (node != NONE) {
+			this._resolved[node] = declaration;
+		}
+		return declaration;
+	}
+	
+	// Add declaration to owner's members, or report it if owner already has one
+	//  by that name. Returns whether it was added.
+	private boolean declareMember(int owner, int declaration, int node) {
+		long key = memberKey(owner, this._names[declaration]);
+		int slot = this.memberSlot(key);
+		if (this._members[slot] != 0) {
+			this.error(DiagnosticCode.DuplicateDeclaration, node, this.name(declaration));
+			return false;
+		}
+		this._memberKeys[slot] = key;
+		this._members[slot] = declaration + 1;
+		this._memberCount += 1;
+		if (this._memberCount * 2 > this._members.length) {
+			long[] keys = this._memberKeys;
+			int[] members = this._members;
+			this._memberKeys = new long[keys.length * 2];
+			this._members = new int[keys.length * 2];
+			this._memberMask = this._members.length - 1;
+			for (int i = 0; i < keys.length; ++i) {
+				if (members[i] != 0) {
+					int to = this.memberSlot(keys[i]);
+					this._memberKeys[to] = keys[i];
+					this._members[to] = members[i];
+				}
+			}
+		}
+		return true;
+	}
+	
+	// Member of owner named symbol, or the class named symbol for owner NONE
+	private int findMember(int owner, int symbol) {
+		return this._members[this.memberSlot(memberKey(owner, symbol))] - 1;
+	}
+	
+	// The slot key is in, or the empty one it would go in
+	private int memberSlot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		int slot = (int) (h ^ (h >>> 32)) & this._memberMask;
+		while (this._members[slot] != 0 && this._memberKeys[slot] != key) {
+			slot = (slot + 1) & this._memberMask;
+		}
+		return slot;
+	}
+	
+	private static long memberKey(int owner, int symbol) {
+		return (long) owner << 32 | (symbol & 0xFFFFFFFFL);
+	}
+	
+	private void error(DiagnosticCode code, int node, Object... args) {
+		int token = this._tree.token(node);
+		this._errors.report(new Diagnostic(code, this._tokens.getLines(), this._tokens.start(token), this._tokens.end(token), args));
+		this._errorCount++;
+	}
+}
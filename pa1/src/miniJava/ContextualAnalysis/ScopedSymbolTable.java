@@ -0,0 +1,137 @@
+package miniJava.ContextualAnalysis;
+
+import java.util.Arrays;
+
+// The declarations visible at a point in a program, by symbol ID.
+//
+// One open-addressing table maps every symbol to its innermost declaration,
+//  and each declaration remembers the one of the same symbol it shadows, so
+//  a lookup is a probe and an array read. Declarations are kept on a stack
+//  that doubles as the undo log: closing a scope pops the declarations made
+//  in it and puts back what they shadowed. Opening and closing a scope costs
+//  only the declarations in it, and nothing is allocated once the arrays have
+//  grown to fit the program.
+public class ScopedSymbolTable {
+	public static final int NONE = -1;
+	
+	// Slot holds symbol ID + 1, or 0 when empty. A symbol keeps its slot once
+	//  added, with no declaration while none is in scope.
+	private int[] _keys = new int[64];
+	private int[] _heads = new int[64];		// innermost entry of the slot's symbol, or NONE
+	private int _mask = 63;
+	private int _keyCount;
+	
+	// Entries of the open scopes, innermost last
+	private int[] _symbols = new int[64];
+	private int[] _declarations = new int[64];
+	private int[] _levels = new int[64];
+	private int[] _shadowed = new int[64];	// entry of the same symbol this one hides, or NONE
+	private int _entryCount;
+	
+	// Entry count when each open scope was opened
+	private int[] _scopeStarts = new int[16];
+	private int _level;
+	
+	// Number of open scopes, the outermost one is level 1
+	public int level() {
+		return this._level;
+	}
+	
+	public void openScope() {
+		if (this._level == this._scopeStarts.length) {
+			this._scopeStarts = Arrays.copyOf(this._scopeStarts, this._level * 2);
+		}
+		this._scopeStarts[this._level++] = this._entryCount;
+	}
+	
+	// Close the innermost scope, dropping the declarations made in it
+	public void closeScope() {
+		int start = this._scopeStarts[--this._level];
+		while (this._entryCount > start) {
+			int entry = --this._entryCount;
+			this._heads[this.slot(this._symbols[entry])] = this._shadowed[entry];
+		}
+	}
+	
+	// Declare symbol in the innermost scope, hiding any outer declaration of it.
+	//  Callers check lookupLevel() first for the redeclarations they forbid.
+	public void declare(int symbol, int declaration) {
+		if (this._entryCount == this._symbols.length) {
+			int capacity = this._entryCount * 2;
+			this._symbols = Arrays.copyOf(this._symbols, capacity);
+			this._declarations = Arrays.copyOf(this._declarations, capacity);
+			this._levels = Arrays.copyOf(this._levels, capacity);
+			this._shadowed = Arrays.copyOf(this._shadowed, capacity);
+		}
+		int slot = this.slot(symbol);
+		if (this._keys[slot] == 0) {
+			this._keys[slot] = symbol + 1;
+			this._heads[slot] = NONE;
+			this._keyCount += 1;
+		}
+		int entry = this._entryCount++;
+		this._symbols[entry] = symbol;
+		this._declarations[entry] = declaration;
+		this._levels[entry] = this._level;
+		this._shadowed[entry] = this._heads[slot];
+		this._heads[slot] = entry;
+		
+		// Keep the table at most half full
+		if (this._keyCount * 2 > this._keys.length) {
+			this.grow();
+		}
+	}
+	
+	// The innermost declaration of symbol, or NONE
+	public int lookup(int symbol) {
+		int entry = this.entry(symbol);
+		return entry != NONE ? this._declarations[entry] : NONE;
+	}
+	
+	// Level of the scope the innermost declaration of symbol is in, or NONE
+	public int lookupLevel(int symbol) {
+		int entry = this.entry(symbol);
+		return entry != NONE ? this._levels[entry] : NONE;
+	}
+	
+	private int entry(int symbol) {
+		int slot = mix(symbol) & this._mask;
+		while (this._keys[slot] != 0) {
+			if (this._keys[slot] == symbol + 1) {
+				return this._heads[slot];
+			}
+			slot = (slot + 1) & this._mask;
+		}
+		return NONE;
+	}
+	
+	// The slot symbol is in, or the empty one it would go in
+	private int slot(int symbol) {
+		int slot = mix(symbol) & this._mask;
+		while (this._keys[slot] != 0 && this._keys[slot] != symbol + 1) {
+			slot = (slot + 1) & this._mask;
+		}
+		return slot;
+	}
+	
+	private void grow() {
+		int[] keys = this._keys;
+		int[] heads = this._heads;
+		this._keys = new int[keys.length * 2];
+		this._heads = new int[keys.length * 2];
+		this._mask = this._keys.length - 1;
+		for (int i = 0; i < keys.length; ++i) {
+			if (keys[i] != 0) {
+				int slot = this.slot(keys[i] - 1);
+				this._keys[slot] = keys[i];
+				this._heads[slot] = heads[i];
+			}
+		}
+	}
+	
+	// Symbol IDs are dense, so spread them over the table
+	private static int mix(int symbol) {
+		int h = symbol * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
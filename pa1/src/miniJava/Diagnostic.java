@@ -0,0 +1,89 @@
+package miniJava;
+
+import miniJava.SyntacticAnalyzer.LineMap;
+
+// One reported problem. Only the code, its arguments and the offsets of the
+//  text it is about are kept. The message is formatted from the template,
+//  and the line and column looked up, when someone reads them.
+public final class Diagnostic {
+	public static final long UNKNOWN = -1;
+	
+	private final DiagnosticCode _code;
+	private final LineMap _lines;	// turns the offsets into lines and columns, if known
+	private final int _line;		// otherwise the position as given
+	private final int _column;
+	private final long _start;		// byte offsets of the text it is about, or UNKNOWN
+	private final long _end;
+	private final Object[] _args;
+	
+	public Diagnostic(DiagnosticCode code, LineMap lines, long start, long end, Object... args) {
+		this._code = code;
+		this._lines = lines;
+		this._line = 0;
+		this._column = 0;
+		this._start = start;
+		this._end = end;
+		this._args = args;
+	}
+	
+	public Diagnostic(DiagnosticCode code, int line, int column, long start, long end, Object... args) {
+		this._code = code;
+		this._lines = null;
+		this._line = line;
+		this._column = column;
+		this._start = start;
+		this._end = end;
+		this._args = args;
+	}
+	
+	public DiagnosticCode getCode() {
+		return this._code;
+	}
+	
+	public Severity getSeverity() {
+		return this._code.getSeverity();
+	}
+	
+	public int getLine() {
+		return this._lines != null ? this._lines.line(this._start) : this._line;
+	}
+	
+	public int getColumn() {
+		return this._lines != null ? this._lines.column(this._start) : this._column;
+	}
+	
+	public long getStart() {
+		return this._start;
+	}
+	
+	public long getEnd() {
+		return this._end;
+	}
+	
+	// The offsets' lines, or null if the position was given as line and column
+	public LineMap getLines() {
+		return this._lines;
+	}
+	
+	public Object[] getArguments() {
+		return this._args.clone();
+	}
+	
+	public String getMessage() {
+		return this._args.length == 0 ? this._code.getTemplate() : String.format(this._code.getTemplate(), this._args);
+	}
+	
+	// The same diagnostic for text that moved by offsetDelta bytes
+	public Diagnostic moved(long offsetDelta) {
+		if (offsetDelta == 0 || this._lines == null) {
+			return this;
+		}
+		return new Diagnostic(this._code, this._lines, this._start + offsetDelta, this._end + offsetDelta, this._args);
+	}
+	
+	// Message and position, the way errors are printed
+	@Override
+	public String toString() {
+		return this.getMessage() + " on Line " + this.getLine() + " Column " + this.getColumn();
+	}
+}
@@ -0,0 +1,66 @@
+package miniJava;
+
+// Every kind of diagnostic the compiler reports, with a stable code and a
+//  message template whose %s are filled in from the diagnostic's arguments.
+public enum DiagnosticCode {
+	// Lexical errors
+	UnrecognizedCharacter("L001", "Unrecognized character '%s' in input"),
+	UnexpectedCharacter("L002", "Unexpected character '%s' in input"),
+	NonAsciiCharacter("L003", "Non-ASCII character '%s' is only allowed in comments"),
+	UnterminatedComment("L004", "Unterminated block comment"),
+	ReadError("L005", "%s"),
+	MalformedCharacter("L006", "Malformed UTF-8 in input"),
+	
+	// Syntax errors
+	ExpectedToken("S001", "Invalid token - expecting %s but found %s"),
+	UnexpectedToken("S002", "Invalid token - found %s"),
+	
+	// Identification errors
+	UndeclaredIdentifier("I001", "Undeclared identifier '%s'"),
+	DuplicateDeclaration("I002", "'%s' is already declared in this scope"),
+	HiddenVariable("I003", "'%s' hides a parameter or local variable"),
+	NoMember("I004", "'%s' has no member '%s'"),
+	PrivateMember("I005", "'%s' is private to class '%s'"),
+	StaticContext("I006", "Cannot use '%s' from a static context"),
+	SelfInitializer("I007", "Variable '%s' is used in its own initializer"),
+	
+	// Files that could not be compiled at all
+	FileNotFound("F001", "File Not Found"),
+	CompilerFailure("F002", "Compiler failure: %s");
+	
+	private final String _code;
+	private final String _template;
+	private final Severity _severity;
+	
+	DiagnosticCode(String code, String template) {
+		this(code, template, Severity.Error);
+	}
+	
+	DiagnosticCode(String code, String template, Severity severity) {
+		this._code = code;
+		this._template = template;
+		this._severity = severity;
+	}
+	
+	// The code with the given getCode(), or null if there is none
+	public static DiagnosticCode forCode(String code) {
+		for (DiagnosticCode value : values()) {
+			if (value._code.equals(code)) {
+				return value;
+			}
+		}
+		return null;
+	}
+	
+	public String getCode() {
+		return this._code;
+	}
+	
+	public String getTemplate() {
+		return this._template;
+	}
+	
+	public Severity getSeverity() {
+		return this._severity;
+	}
+}
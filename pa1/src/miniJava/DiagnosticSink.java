@@ -0,0 +1,6 @@
+package miniJava;
+
+// Receives diagnostics as they are reported, see ErrorReporter.setSink()
+public interface DiagnosticSink {
+	void report(Diagnostic diagnostic);
+}
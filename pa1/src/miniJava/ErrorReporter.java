@@ -2,40 +2,108 @@ package miniJava;
 
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
+import java.io.PrintStream;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 
-// TODO: Note this class lacks a lot of things.
-//  First of all, errors are simple strings,
-//  perhaps it may be worthwhile to augment this reporter
-//  with requiring line numbers.
+// Collects the diagnostics of one compilation. Each is kept as a structured
+//  Diagnostic, passed on to the sink if there is one as soon as it is
+//  reported, and only formatted as text when printed.
 public class ErrorReporter {
-	private List<String> _errorQueue;
+	public static final int NO_LIMIT = Integer.MAX_VALUE;
+	
+	// The compiler's limit unless --max-errors gives another
+	public static final int DEFAULT_LIMIT = 100;
+	
+	private List<Diagnostic> _diagnostics;
+	private DiagnosticSink _sink;
+	private int _errorLimit = NO_LIMIT;
+	private int _errorCount = 0;
+	
+	// Thrown once the error limit is reached, to stop compiling. Carries no
+	//  stack trace and is shared, like Parser.SyntaxError.
+	public static final class LimitReached extends RuntimeException {
+		private static final long serialVersionUID = 4191513455163451117L;
+		
+		static final LimitReached INSTANCE = new LimitReached();
+		
+		private LimitReached() {
+			super("Error limit reached", null, false, false);
+		}
+	}
 	
 	public ErrorReporter() {
-		this._errorQueue = new ArrayList<String>();
+		this._diagnostics = new ArrayList<Diagnostic>();
+	}
+	
+	// Stream diagnostics to sink as they are reported
+	public void setSink(DiagnosticSink sink) {
+		this._sink = sink;
+	}
+	
+	// Stop compiling, by throwing LimitReached, once this many errors are reported
+	public void setErrorLimit(int errorLimit) {
+		this._errorLimit = errorLimit;
+	}
+	
+	public int getErrorLimit() {
+		return this._errorLimit;
+	}
+	
+	public boolean isLimitReached() {
+		return this._errorCount >= this._errorLimit;
+	}
+	
+	// Printed after the errors when compiling stopped at the limit, else null
+	public String getLimitMessage() {
+		return this.isLimitReached() ? "Too many errors, stopped after " + this._errorLimit : null;
 	}
 	
 	public boolean hasErrors() {
-		// Check if errorQueue is non-empty
-		return !_errorQueue.isEmpty();
+		// Check if any errors were reported
+		return this._errorCount > 0;
+	}
+	
+	public List<Diagnostic> getDiagnostics() {
+		return Collections.unmodifiableList(this._diagnostics);
+	}
+	
+	// The diagnostics formatted as they are printed
+	public List<String> getErrors() {
+		List<String> errors = new ArrayList<String>(this._diagnostics.size());
+		for (Diagnostic diagnostic : this._diagnostics) {
+			errors.add(diagnostic.toString());
+		}
+		return errors;
 	}
 	
 	public void outputErrors() {
-		// output all errors in the errorQueue
-		for (String error : _errorQueue) {
-			System.out.println(error);
+		this.outputErrors(System.out);
+	}
+	
+	public void outputErrors(PrintStream out) {
+		// output all diagnostics, formatting them now
+		for (Diagnostic diagnostic : this._diagnostics) {
+			out.println(diagnostic);
+		}
+		if (this.isLimitReached()) {
+			out.println(this.getLimitMessage());
 		}
 	}
 	
-	public void reportError(SourcePosition position, String ...error) {
-		StringBuilder sb = new StringBuilder();
-		
-		for(String s : error)
-			sb.append(s);
-
-		sb.append(" on ").append(position.toString());
-		
-		_errorQueue.add(sb.toString());
+	public void report(Diagnostic diagnostic) {
+		this._diagnostics.add(diagnostic);
+		if (this._sink != null) {
+			this._sink.report(diagnostic);
+		}
+		if (diagnostic.getSeverity() == Severity.Error && ++this._errorCount >= this._errorLimit) {
+			throw LimitReached.INSTANCE;
+		}
+	}
+	
+	// An error with a position but no known offsets
+	public void reportError(DiagnosticCode code, SourcePosition position, Object... args) {
+		this.report(new Diagnostic(code, position.getLine(), position.getColumn(), Diagnostic.UNKNOWN, Diagnostic.UNKNOWN, args));
 	}
 }
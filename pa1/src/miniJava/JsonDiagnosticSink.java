@@ -0,0 +1,51 @@
+package miniJava;
+
+import java.io.PrintStream;
+
+// Prints diagnostics as JSON lines, one object per diagnostic, for tools
+public class JsonDiagnosticSink implements DiagnosticSink {
+	private PrintStream _out;
+	private String _file;
+	
+	public JsonDiagnosticSink(PrintStream out, String file) {
+		this._out = out;
+		this._file = file;
+	}
+	
+	@Override
+	public void report(Diagnostic diagnostic) {
+		StringBuilder sb = new StringBuilder(128);
+		sb.append("{\"file\":");
+		quote(sb, this._file);
+		sb.append(",\"severity\":\"").append(diagnostic.getSeverity().getName());
+		sb.append("\",\"code\":\"").append(diagnostic.getCode().getCode());
+		sb.append("\",\"message\":");
+		quote(sb, diagnostic.getMessage());
+		if (diagnostic.getLine() > 0) {
+			sb.append(",\"line\":").append(diagnostic.getLine());
+			sb.append(",\"column\":").append(diagnostic.getColumn());
+		}
+		if (diagnostic.getStart() != Diagnostic.UNKNOWN) {
+			sb.append(",\"start\":").append(diagnostic.getStart());
+			sb.append(",\"end\":").append(diagnostic.getEnd());
+		}
+		sb.append('}');
+		this._out.println(sb);
+	}
+	
+	// Append s as a JSON string, escaping everything outside printable ASCII
+	public static void quote(StringBuilder sb, String s) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); ++i) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20 || c > 0x7e) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,17 @@
+package miniJava;
+
+public enum Severity {
+	Error("error"),
+	Warning("warning");
+	
+	private final String _name;
+	
+	Severity(String name) {
+		this._name = name;
+	}
+	
+	// Lower case name, as printed in JSON diagnostics
+	public String getName() {
+		return this._name;
+	}
+}
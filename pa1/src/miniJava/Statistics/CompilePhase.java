@@ -0,0 +1,20 @@
+package miniJava.Statistics;
+
+public enum CompilePhase {
+	Read("read"),		// opening or mapping the source
+	Scan("scan"),
+	Parse("parse"),
+	Identify("identify"),	// linking names to declarations, with --identify
+	Cache("cache");	// looking a source up in the CompileCache and replaying a hit
+	
+	private final String _name;
+	
+	CompilePhase(String name) {
+		this._name = name;
+	}
+	
+	// Lower case name, as used in the --stats report and JFR events
+	public String getName() {
+		return this._name;
+	}
+}
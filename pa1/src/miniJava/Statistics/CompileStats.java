@@ -0,0 +1,206 @@
+package miniJava.Statistics;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import miniJava.JsonDiagnosticSink;
+import miniJava.AbstractSyntaxTrees.NodeKind;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+import miniJava.SyntacticAnalyzer.TokenType;
+
+// Where the time of compiling one file goes: wall time, bytes, tokens and
+//  allocated bytes per phase, tokens per TokenType and completed productions
+//  per NodeKind. Phases are committed as JFR events, and the whole can be
+//  printed as a JSON line for --stats.
+//
+// Nothing is recorded unless a CompileStats is passed in, and callers only
+//  create one for --stats or while a JFR recording wants the events, so
+//  compiling without them costs a null check per phase.
+public class CompileStats {
+	private static final CompilePhase[] PHASES = CompilePhase.values();
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+	private static final NodeKind[] NODE_KINDS = NodeKind.values();
+	
+	private String _file;
+	private long[] _nanos = new long[PHASES.length];
+	private long[] _bytes = new long[PHASES.length];
+	private long[] _tokens = new long[PHASES.length];
+	private long[] _allocated = new long[PHASES.length];
+	private boolean[] _recorded = new boolean[PHASES.length];
+	private int[] _tokenCounts = new int[TOKEN_TYPES.length];
+	private int[] _productions = new int[NODE_KINDS.length];
+	
+	// The phase in progress
+	private CompilePhase _phase;
+	private PhaseEvent _event;
+	private boolean _recording;		// whether to commit JFR events, see isRecording()
+	private long _start;
+	private long _allocatedStart;
+	
+	public CompileStats(String file) {
+		this._file = file;
+		this._recording = isRecording();
+	}
+	
+	// Whether a JFR recording is taking the compiler's events. Looking up an
+	//  event type starts up JFR, so that is only done once it is running.
+	public static boolean isRecording() {
+		return FlightRecorder.isInitialized() && EventType.getEventType(PhaseEvent.class).isEnabled();
+	}
+	
+	public String getFile() {
+		return this._file;
+	}
+	
+	public void begin(CompilePhase phase) {
+		this._phase = phase;
+		// Loading an event class starts up JFR's metadata, so stay clear of it unless recording
+		if (this._recording) {
+			this._event = new PhaseEvent();
+			this._event.begin();
+		}
+		this._allocatedStart = Allocation.current();
+		this._start = System.nanoTime();
+	}
+	
+	// End the phase begun last, which read bytes and produced or consumed tokens
+	public void end(long bytes, long tokens) {
+		CompilePhase phase = this._phase;
+		long nanos = System.nanoTime() - this._start;
+		long allocated = Allocation.current();
+		allocated = allocated < 0 || this._allocatedStart < 0 ? -1 : allocated - this._allocatedStart;
+		
+		int i = phase.ordinal();
+		this._nanos[i] = nanos;
+		this._bytes[i] = bytes;
+		this._tokens[i] = tokens;
+		this._allocated[i] = allocated;
+		this._recorded[i] = true;
+		
+		PhaseEvent event = this._event;
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.file = this._file;
+				event.phase = phase.getName();
+				event.bytes = bytes;
+				event.tokens = tokens;
+				event.allocated = allocated;
+				event.commit();
+			}
+		}
+		this._event = null;
+		this._phase = null;
+	}
+	
+	public void countTokens(TokenBuffer tokens) {
+		for (int i = 0; i < tokens.size(); ++i) {
+			this._tokenCounts[tokens.type(i).ordinal()] += 1;
+		}
+	}
+	
+	// Indexed by NodeKind ordinal, for Parser.setProductionCounts()
+	public int[] getProductionCounts() {
+		return this._productions;
+	}
+	
+	public long getNanos(CompilePhase phase) {
+		return this._nanos[phase.ordinal()];
+	}
+	
+	public int getTokenCount(TokenType type) {
+		return this._tokenCounts[type.ordinal()];
+	}
+	
+	public int getProductionCount(NodeKind kind) {
+		return this._productions[kind.ordinal()];
+	}
+	
+	// Commit the token and production counts as JFR events, once compiling is done
+	public void commitCounts() {
+		if (!this._recording || !EventType.getEventType(CountEvent.class).isEnabled()) {
+			return;
+		}
+		for (int i = 0; i < this._tokenCounts.length; ++i) {
+			this.commitCount("token", TOKEN_TYPES[i].name(), this._tokenCounts[i]);
+		}
+		for (int i = 0; i < this._productions.length; ++i) {
+			this.commitCount("production", NODE_KINDS[i].name(), this._productions[i]);
+		}
+	}
+	
+	private void commitCount(String kind, String name, int count) {
+		if (count == 0) {
+			return;
+		}
+		CountEvent event = new CountEvent();
+		event.file = this._file;
+		event.kind = kind;
+		event.name = name;
+		event.count = count;
+		event.commit();
+	}
+	
+	// Print the statistics as one JSON object on one line
+	public void output(PrintStream out) {
+		StringBuilder sb = new StringBuilder(512);
+		sb.append("{\"file\":");
+		JsonDiagnosticSink.quote(sb, this._file);
+		sb.append(",\"phases\":[");
+		boolean first = true;
+		for (CompilePhase phase : PHASES) {
+			int i = phase.ordinal();
+			if (!this._recorded[i]) {
+				continue;
+			}
+			sb.append(first ? "" : ",").append("{\"phase\":\"").append(phase.getName());
+			sb.append("\",\"nanos\":").append(this._nanos[i]);
+			sb.append(",\"bytes\":").append(this._bytes[i]);
+			sb.append(",\"tokens\":").append(this._tokens[i]);
+			sb.append(",\"allocated\":").append(this._allocated[i]).append('}');
+			first = false;
+		}
+		sb.append("],\"tokens\":{");
+		appendCounts(sb, TOKEN_TYPES, this._tokenCounts);
+		sb.append("},\"productions\":{");
+		appendCounts(sb, NODE_KINDS, this._productions);
+		sb.append("}}");
+		out.println(sb);
+	}
+	
+	private static void appendCounts(StringBuilder sb, Enum<?>[] names, int[] counts) {
+		boolean first = true;
+		for (int i = 0; i < counts.length; ++i) {
+			if (counts[i] != 0) {
+				sb.append(first ? "\"" : ",\"").append(names[i].name()).append("\":").append(counts[i]);
+				first = false;
+			}
+		}
+	}
+	
+	// Loaded on first use only, so compiling without statistics never starts
+	//  the management beans
+	private static class Allocation {
+		private static final com.sun.management.ThreadMXBean BEAN = bean();
+		
+		private static com.sun.management.ThreadMXBean bean() {
+			ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+			if (bean instanceof com.sun.management.ThreadMXBean) {
+				com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+				if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+					return threads;
+				}
+			}
+			return null;
+		}
+		
+		// Bytes allocated by the current thread so far, or -1 if unknown. Work
+		//  forked to other threads, e.g. by ParallelParser, is not included.
+		static long current() {
+			return BEAN != null ? BEAN.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+		}
+	}
+}
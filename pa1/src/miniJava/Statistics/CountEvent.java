@@ -0,0 +1,27 @@
+package miniJava.Statistics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// How often one token type or production occurred in one file, see CompileStats
+@Name("miniJava.CompileCount")
+@Label("Compile Count")
+@Category("miniJava")
+@Description("Tokens of one type, or completed productions of one kind, in one source file")
+class CountEvent extends Event {
+	@Label("File")
+	String file;
+	
+	@Label("Kind")
+	@Description("token or production")
+	String kind;
+	
+	@Label("Name")
+	String name;
+	
+	@Label("Count")
+	long count;
+}
@@ -0,0 +1,33 @@
+package miniJava.Statistics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// One compiler phase of one file, see CompileStats
+@Name("miniJava.CompilePhase")
+@Label("Compile Phase")
+@Category("miniJava")
+@Description("A phase of compiling one source file")
+class PhaseEvent extends Event {
+	@Label("File")
+	String file;
+	
+	@Label("Phase")
+	String phase;
+	
+	@Label("Bytes")
+	@DataAmount
+	long bytes;
+	
+	@Label("Tokens")
+	long tokens;
+	
+	@Label("Allocated")
+	@Description("Bytes allocated by the compiling thread during the phase, -1 if unknown")
+	@DataAmount
+	long allocated;
+}
@@ -0,0 +1,103 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reads an InputStream in fixed-size chunks. Chunks are kept once read, so
+//  any offset below the high-water mark can be read again (e.g. token text).
+public class BufferedSourceInput extends SourceInput {
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+	private static final VarHandle WORDS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+	
+	private InputStream _in;
+	private List<byte[]> _chunks;
+	private byte[] _lastChunk;
+	private long _filled = 0;
+	private boolean _eof = false;
+	private long _length = -1;
+	
+	public BufferedSourceInput(InputStream in) {
+		this._in = in;
+		this._chunks = new ArrayList<byte[]>();
+	}
+	
+	// A stream whose length is known up front, such as an archive entry
+	public BufferedSourceInput(InputStream in, long length) {
+		this(in);
+		this._length = length;
+	}
+	
+	@Override
+	public int byteAt(long offset) throws IOException {
+		while (offset >= this._filled) {
+			if (this._eof || !this.fill()) {
+				return EOT;
+			}
+		}
+		
+		// Fast path: the scanner almost always reads from the newest chunk
+		if ((offset >>> CHUNK_BITS) == (this._chunks.size() - 1)) {
+			return this._lastChunk[(int) (offset & CHUNK_MASK)] & 0xFF;
+		}
+		return this._chunks.get((int) (offset >>> CHUNK_BITS))[(int) (offset & CHUNK_MASK)] & 0xFF;
+	}
+	
+	@Override
+	public boolean hasWord(long offset) throws IOException {
+		while (offset + 8 > this._filled) {
+			if (this._eof || !this.fill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public long wordAt(long offset) throws IOException {
+		int index = (int) (offset & CHUNK_MASK);
+		if (index + 8 > CHUNK_SIZE) {
+			// Straddles two chunks
+			return super.wordAt(offset);
+		}
+		return (long) WORDS.get(this._chunks.get((int) (offset >>> CHUNK_BITS)), index);
+	}
+	
+	@Override
+	public long length() {
+		return this._length;
+	}
+	
+	// Read the next block of bytes from the stream. Returns false at end of stream.
+	private boolean fill() throws IOException {
+		int pos = (int) (this._filled & CHUNK_MASK);
+		if (pos == 0) {
+			this._lastChunk = new byte[CHUNK_SIZE];
+			this._chunks.add(this._lastChunk);
+		}
+		
+		int n = this._in.read(this._lastChunk, pos, CHUNK_SIZE - pos);
+		if (n < 0) {
+			this._eof = true;
+			if (pos == 0) {
+				// Drop the chunk we just added, nothing was read into it
+				this._chunks.remove(this._chunks.size() - 1);
+				this._lastChunk = this._chunks.isEmpty() ? null : this._chunks.get(this._chunks.size() - 1);
+			}
+			return false;
+		}
+		this._filled += n;
+		return true;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this._in.close();
+	}
+}
@@ -0,0 +1,64 @@
+package miniJava.SyntacticAnalyzer;
+
+// Splits a token stream into top-level class declarations by brace matching
+//  over the token types, without parsing. A range that does not start with
+//  class runs up to the next class, so stray tokens get a range of their own.
+//  Method bodies skipped by a lazy parse are found the same way.
+final class ClassBoundaries {
+	private ClassBoundaries() { }
+	
+	// End (exclusive) of the range starting at start, never past limit
+	static int end(TokenBuffer tokens, int start, int limit) {
+		if (tokens.type(start) != TokenType.Class) {
+			int i = start + 1;
+			while (i < limit && tokens.type(i) != TokenType.Class) {
+				i += 1;
+			}
+			return i;
+		}
+		
+		int depth = 0;
+		for (int i = start + 1; i < limit; ++i) {
+			switch (tokens.type(i)) {
+			case LCurly:
+				depth += 1;
+				break;
+			case RCurly:
+				depth -= 1;
+				if (depth <= 0) {
+					return i + 1;
+				}
+				break;
+			case Class:
+				// class cannot appear inside a class, assume a } is missing
+				return i;
+			default:
+			}
+		}
+		return limit;
+	}
+	
+	// The } matching the { at open, or the class or eot that shows it is
+	//  missing, or limit
+	static int blockEnd(TokenBuffer tokens, int open, int limit) {
+		int depth = 0;
+		for (int i = open; i < limit; ++i) {
+			switch (tokens.type(i)) {
+			case LCurly:
+				depth += 1;
+				break;
+			case RCurly:
+				depth -= 1;
+				if (depth == 0) {
+					return i;
+				}
+				break;
+			case Class:
+			case EOT:
+				return i;
+			default:
+			}
+		}
+		return limit;
+	}
+}
@@ -0,0 +1,61 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+// A view of another source with one edit applied: deletedLength bytes at
+//  offset are replaced by the inserted bytes. Views of views are flattened
+//  into a copy once they get deep, so reads stay cheap over long edit sessions.
+public class EditedSourceInput extends SourceInput {
+	private static final int MAX_DEPTH = 64;
+	
+	private SourceInput _base;
+	private long _offset;
+	private long _deletedLength;
+	private byte[] _inserted;
+	private int _depth;
+	
+	private EditedSourceInput(SourceInput base, long offset, long deletedLength, byte[] inserted) {
+		this._base = base;
+		this._offset = offset;
+		this._deletedLength = deletedLength;
+		this._inserted = inserted;
+		this._depth = base instanceof EditedSourceInput ? ((EditedSourceInput) base)._depth + 1 : 1;
+	}
+	
+	public static SourceInput edit(SourceInput base, long offset, long deletedLength, byte[] inserted) throws IOException {
+		EditedSourceInput edited = new EditedSourceInput(base, offset, deletedLength, inserted);
+		return edited._depth < MAX_DEPTH ? edited : edited.flatten();
+	}
+	
+	@Override
+	public int byteAt(long offset) throws IOException {
+		if (offset < this._offset) {
+			return this._base.byteAt(offset);
+		}
+		long inInserted = offset - this._offset;
+		if (inInserted < this._inserted.length) {
+			return this._inserted[(int) inInserted] & 0xFF;
+		}
+		return this._base.byteAt(offset - this._inserted.length + this._deletedLength);
+	}
+	
+	// Copy the edited text into a fresh buffer
+	private SourceInput flatten() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		for (long i = 0; ; ++i) {
+			int c = this.byteAt(i);
+			if (c == EOT) {
+				break;
+			}
+			out.write(c);
+		}
+		return new BufferedSourceInput(new ByteArrayInputStream(out.toByteArray()));
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this._base.close();
+	}
+}
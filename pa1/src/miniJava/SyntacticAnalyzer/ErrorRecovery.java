@@ -0,0 +1,92 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.Diagnostic;
+import miniJava.DiagnosticCode;
+import miniJava.ErrorReporter;
+
+// Panic-mode error recovery, shared by Parser and TableParser so both report
+//  the same errors. After an error, later ones are suppressed until a few
+//  tokens are accepted or synchronize() reaches a safe point, so one mistake
+//  doesn't cascade into many. Parsing stops at the ErrorReporter's limit,
+//  when it throws LimitReached.
+final class ErrorRecovery {
+	// Tokens that must be accepted after an error before errors are reported again
+	private static final int RECOVERY_TOKENS = 3;
+	
+	private final TokenStream _tokens;
+	private final ErrorReporter _errors;
+	
+	// Tokens still to accept after an error before another error is reported
+	private int _suppressed;
+	
+	ErrorRecovery(TokenStream tokens, ErrorReporter errors) {
+		this._tokens = tokens;
+		this._errors = errors;
+	}
+	
+	// Report at the current token, unless still recovering from the last error
+	void error(DiagnosticCode code, Object... args) {
+		if (this._suppressed == 0) {
+			this._errors.report(new Diagnostic(code, this._tokens.lines(), this._tokens.start(), this._tokens.end(), args));
+		}
+		this._suppressed = RECOVERY_TOKENS;
+	}
+	
+	// The parser accepted the current token
+	void accepted() {
+		if (this._suppressed > 0) {
+			this._suppressed--;
+		}
+	}
+	
+	// Whether errors are still being suppressed
+	boolean isRecovering() {
+		return this._suppressed > 0;
+	}
+	
+	// Skip to the next class, or eot
+	void skipToClass() {
+		while (this._tokens.type() != TokenType.Class && this._tokens.type() != TokenType.EOT) {
+			this._tokens.advance();
+		}
+	}
+	
+	// Skip to where the next member or statement can start. A ; is consumed,
+	//  and so is a nested {...} skipped whole, after which errors are reported
+	//  again. A } closing the enclosing block, class and eot are left for the
+	//  enclosing rule, still suppressing cascades.
+	void synchronize() {
+		int depth = 0;
+		while (true) {
+			switch (this._tokens.type()) {
+			case EOT:
+			case Class:
+				return;
+			case Semicolon:
+				this._tokens.advance();
+				if (depth == 0) {
+					this._suppressed = 0;
+					return;
+				}
+				break;
+			case LCurly:
+				depth++;
+				this._tokens.advance();
+				break;
+			case RCurly:
+				if (depth == 0) {
+					return;
+				}
+				depth--;
+				this._tokens.advance();
+				if (depth == 0) {
+					this._suppressed = 0;
+					return;
+				}
+				break;
+			default:
+				this._tokens.advance();
+			}
+		}
+	}
+}
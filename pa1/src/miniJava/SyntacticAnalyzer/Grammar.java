@@ -0,0 +1,508 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// A context-free grammar over TokenTypes, and the prediction tables generated
+//  from it for TableParser. The tables are strong LL(2): one token of lookahead
+//  picks the production to expand, or two tokens where one is not enough.
+//
+// Rules are given one string per alternative, e.g.
+//		rule("Args", "", "else Expression ArgTail")
+//  Symbols named after a TokenType are terminals, all others nonterminals,
+//  and "" is the empty alternative. The alternative marked "else" is also
+//  expanded on every token no other alternative is predicted for, as a
+//  hand-written parser's else branch would be, so the error is found at the
+//  same token. Without one, a nonterminal with a single production always
+//  expands it, and one with an empty production expands that.
+//
+// build() fails listing every conflict the lookahead cannot resolve and
+//  prefer() does not settle, and any left recursion.
+final class Grammar {
+	static final int TERMINALS = TokenType.values().length;
+	
+	// Entry of the prediction table for a token no production is predicted on
+	static final short ERROR = -1;
+	
+	// Sets of token strings up to two long are BitSets of codes
+	//  first * WIDTH + second, with each token as its ordinal + 1 and 0 for none
+	private static final int WIDTH = TERMINALS + 1;
+	private static final int EMPTY = 0;
+	
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final Map<String, Integer> TERMINAL_NAMES = new HashMap<String, Integer>();
+	
+	static {
+		for (TokenType type : TYPES) {
+			TERMINAL_NAMES.put(type.name(), type.ordinal());
+		}
+	}
+	
+	// Nonterminal i is symbol TERMINALS + i
+	private List<String> _names = new ArrayList<String>();
+	private Map<String, Integer> _symbols = new HashMap<String, Integer>();
+	private List<Byte> _recovery = new ArrayList<Byte>();
+	
+	// Productions, in the order they were given
+	private List<Integer> _lhs = new ArrayList<Integer>();
+	private List<int[]> _rhs = new ArrayList<int[]>();
+	private List<String> _text = new ArrayList<String>();
+	private Map<Integer, Integer> _defaults = new HashMap<Integer, Integer>();	// nonterminal to its else production
+	private Map<Integer, TokenType[]> _stops = new HashMap<Integer, TokenType[]>();	// extra tokens an empty production is predicted on
+	private List<int[]> _preferences = new ArrayList<int[]>();	// production, first token, second token or -1
+	
+	// Generated by build()
+	private short[] _predict;
+	private short[] _predict2;
+	private int[] _expandStart;
+	private int[] _expand;
+	private boolean[] _matches;
+	private byte[] _recoveryKinds;
+	
+	// name ::= alternatives[0] | alternatives[1] | ...
+	void rule(String name, String... alternatives) {
+		int lhs = this.symbol(name);
+		for (String alternative : alternatives) {
+			String text = alternative.trim();
+			if (text.startsWith("else ") || text.equals("else")) {
+				if (this._defaults.containsKey(lhs)) {
+					throw new IllegalArgumentException(name + " has two else alternatives");
+				}
+				text = text.substring(4).trim();
+				this._defaults.put(lhs, this._lhs.size());
+			}
+			String[] names = text.isEmpty() ? new String[0] : text.split("\\s+");
+			int[] rhs = new int[names.length];
+			for (int i = 0; i < names.length; ++i) {
+				rhs[i] = this.symbol(names[i]);
+			}
+			this._lhs.add(lhs);
+			this._rhs.add(rhs);
+			this._text.add(String.join(" ", names));
+		}
+	}
+	
+	// name ::= element*, ending at any of stops. The element is expanded on
+	//  every other token, like a loop that runs until it sees one of them.
+	void list(String name, String element, TokenType... stops) {
+		this.rule(name, "", "else " + element + " " + name);
+		this._stops.put(this._lhs.size() - 2, stops.clone());
+	}
+	
+	// Settle a conflict between alternatives of name on the given one or two
+	//  tokens of lookahead in favor of alternative
+	void prefer(String name, String alternative, TokenType... lookahead) {
+		int production = this.production(name, alternative);
+		if (lookahead.length < 1 || lookahead.length > 2) {
+			throw new IllegalArgumentException("Lookahead is one or two tokens");
+		}
+		this._preferences.add(new int[] { production, lookahead[0].ordinal(),
+				lookahead.length > 1 ? lookahead[1].ordinal() : -1 });
+	}
+	
+	// Mark name as a place TableParser recovers at, in the given way
+	void recovery(String name, byte kind) {
+		this._recovery.set(this.symbol(name) - TERMINALS, kind);
+	}
+	
+	// Generate the tables for parsing from start
+	void build(String start) {
+		List<String> problems = new ArrayList<String>();
+		int count = this._names.size();
+		for (int n = 0; n < count; ++n) {
+			if (!this._lhs.contains(TERMINALS + n)) {
+				problems.add(this._names.get(n) + " has no productions");
+			}
+		}
+		if (!problems.isEmpty()) {
+			throw new IllegalStateException("Bad grammar: " + String.join("; ", problems));
+		}
+		
+		BitSet[] first = this.first();
+		BitSet[] follow = this.follow(first, this.symbol(start));
+		this.checkLeftRecursion(first, problems);
+		
+		// Token strings each production is predicted on
+		int productions = this._lhs.size();
+		BitSet[] lookahead = new BitSet[productions];
+		for (int p = 0; p < productions; ++p) {
+			lookahead[p] = concat(this.first(this._rhs.get(p), 0, first), follow[this._lhs.get(p) - TERMINALS]);
+			TokenType[] stops = this._stops.get(p);
+			if (stops != null) {
+				for (TokenType stop : stops) {
+					lookahead[p].set((stop.ordinal() + 1) * WIDTH);
+				}
+			}
+		}
+		
+		this._predict = new short[count * TERMINALS];
+		Arrays.fill(this._predict, ERROR);
+		List<short[]> rows = new ArrayList<short[]>();
+		List<Integer> candidates = new ArrayList<Integer>();
+		for (int n = 0; n < count; ++n) {
+			for (int t = 0; t < TERMINALS; ++t) {
+				candidates.clear();
+				for (int p = 0; p < productions; ++p) {
+					if (this._lhs.get(p) == TERMINALS + n && startsWith(lookahead[p], t)) {
+						candidates.add(p);
+					}
+				}
+				if (candidates.isEmpty()) {
+					continue;
+				}
+				int chosen = candidates.size() == 1 ? candidates.get(0) : this.preferred(candidates, t, -1);
+				if (chosen >= 0) {
+					this._predict[n * TERMINALS + t] = (short) chosen;
+					continue;
+				}
+				
+				// Look at the token after t too
+				short[] row = new short[TERMINALS];
+				Integer fallback = this._defaults.get(TERMINALS + n);
+				if (fallback == null || !candidates.contains(fallback)) {
+					fallback = candidates.get(0);
+				}
+				Arrays.fill(row, (short) (int) fallback);
+				List<Integer> matches = new ArrayList<Integer>();
+				for (int u = 0; u < TERMINALS; ++u) {
+					matches.clear();
+					for (int p : candidates) {
+						if (lookahead[p].get((t + 1) * WIDTH) || lookahead[p].get((t + 1) * WIDTH + u + 1)) {
+							matches.add(p);
+						}
+					}
+					if (matches.isEmpty()) {
+						continue;
+					}
+					chosen = matches.size() == 1 ? matches.get(0) : this.preferred(matches, t, u);
+					if (chosen >= 0) {
+						row[u] = (short) chosen;
+					} else {
+						problems.add(this.conflict(n, matches, TYPES[t] + " " + TYPES[u]));
+					}
+				}
+				this._predict[n * TERMINALS + t] = (short) (-2 - rows.size());
+				rows.add(row);
+			}
+			
+			// Tokens nothing is predicted on
+			int otherwise = this.otherwise(n);
+			for (int t = 0; t < TERMINALS; ++t) {
+				if (this._predict[n * TERMINALS + t] == ERROR) {
+					this._predict[n * TERMINALS + t] = (short) otherwise;
+				}
+			}
+		}
+		if (!problems.isEmpty()) {
+			throw new IllegalStateException("Grammar is not LL(2): " + String.join("; ", problems));
+		}
+		
+		this._predict2 = new short[rows.size() * TERMINALS];
+		for (int r = 0; r < rows.size(); ++r) {
+			System.arraycopy(rows.get(r), 0, this._predict2, r * TERMINALS, TERMINALS);
+		}
+		this._recoveryKinds = new byte[count];
+		for (int n = 0; n < count; ++n) {
+			this._recoveryKinds[n] = this._recovery.get(n);
+		}
+		
+		// What to push for every entry of both tables, see expand()
+		this._expandStart = new int[(count + rows.size()) * TERMINALS + 1];
+		this._matches = new boolean[this._expandStart.length - 1];
+		int[] expansion = new int[16];
+		int length = 0;
+		for (int entry = 0; entry < this._expandStart.length - 1; ++entry) {
+			int t = entry % TERMINALS;
+			int production;
+			int next = -1;
+			if (entry < count * TERMINALS) {
+				production = this._predict[entry];
+			} else {
+				production = this._predict2[entry - count * TERMINALS];
+				next = entry % TERMINALS;
+				t = this.rowToken(entry / TERMINALS - count, count);
+			}
+			int[] symbols = production >= 0 ? this.expand(production, t, next) : new int[0];
+			if (symbols.length > 0 && symbols[symbols.length - 1] == t) {
+				// Matched at once
+				symbols = Arrays.copyOf(symbols, symbols.length - 1);
+				this._matches[entry] = true;
+			}
+			if (length + symbols.length > expansion.length) {
+				expansion = Arrays.copyOf(expansion, Math.max(expansion.length * 2, length + symbols.length));
+			}
+			System.arraycopy(symbols, 0, expansion, length, symbols.length);
+			length += symbols.length;
+			this._expandStart[entry + 1] = length;
+		}
+		this._expand = Arrays.copyOf(expansion, length);
+	}
+	
+	// PREDICT[(nonterminal - TERMINALS) * TERMINALS + token] is the production
+	//  to expand, ERROR, or -2 - r where the token after decides too. That
+	//  token indexes row r of a second table, whose entries follow the first's.
+	short[] predict() {
+		return this._predict;
+	}
+	
+	// Entry e of either table expands to the symbols from expand()[expandStart()[e]]
+	//  up to expand()[expandStart()[e + 1]], to be pushed in that order.
+	//  Nonterminals that would come to the top and be expanded on the same
+	//  lookahead are expanded in advance, so the expansion leaves a terminal,
+	//  or a symbol the lookahead cannot decide, on top of the stack.
+	//
+	// A list nonterminal marked for recovery is pushed as ~symbol where it
+	//  repeats itself, so TableParser can tell the lists it is inside of from
+	//  those still to come.
+	int[] expandStart() {
+		return this._expandStart;
+	}
+	
+	int[] expand() {
+		return this._expand;
+	}
+	
+	// Whether entry e's expansion started with the current token, which is
+	//  then left out of it and only needs to be accepted
+	boolean[] matches() {
+		return this._matches;
+	}
+	
+	// Recovery kind of each nonterminal, 0 for none
+	byte[] recoveryKinds() {
+		return this._recoveryKinds;
+	}
+	
+	int symbol(String name) {
+		Integer symbol = TERMINAL_NAMES.get(name);
+		if (symbol == null) {
+			symbol = this._symbols.get(name);
+		}
+		if (symbol == null) {
+			symbol = TERMINALS + this._names.size();
+			this._names.add(name);
+			this._symbols.put(name, symbol);
+			this._recovery.add((byte) 0);
+		}
+		return symbol;
+	}
+	
+	// The symbols production p leaves on the stack with t as the current token
+	//  and next as the one after, or -1 if that is not known, in push order
+	private int[] expand(int p, int t, int next) {
+		int[] stack = new int[16 + this._rhs.get(p).length];
+		int top = this.push(stack, 0, p);
+		while (top > 0) {
+			// Ends, as there is no left recursion
+			int symbol = stack[top - 1] < 0 ? ~stack[top - 1] : stack[top - 1];
+			if (symbol < TERMINALS) {
+				break;
+			}
+			int production = this._predict[(symbol - TERMINALS) * TERMINALS + t];
+			if (production < -1 && next >= 0) {
+				production = this._predict2[(-2 - production) * TERMINALS + next];
+			}
+			if (production < 0) {
+				break;
+			}
+			if (top + this._rhs.get(production).length > stack.length) {
+				stack = Arrays.copyOf(stack, stack.length * 2 + this._rhs.get(production).length);
+			}
+			top = this.push(stack, top - 1, production);
+		}
+		return Arrays.copyOf(stack, top);
+	}
+	
+	// Push production p's symbols onto stack, the first one on top
+	private int push(int[] stack, int top, int p) {
+		int lhs = this._lhs.get(p);
+		int[] rhs = this._rhs.get(p);
+		for (int i = rhs.length - 1; i >= 0; --i) {
+			boolean marked = rhs[i] == lhs && this._recoveryKinds[lhs - TERMINALS] != 0;
+			stack[top++] = marked ? ~rhs[i] : rhs[i];
+		}
+		return top;
+	}
+	
+	// The first token of the lookahead that row r of the second table is for
+	private int rowToken(int r, int count) {
+		for (int e = 0; e < count * TERMINALS; ++e) {
+			if (this._predict[e] == -2 - r) {
+				return e % TERMINALS;
+			}
+		}
+		throw new IllegalStateException();
+	}
+	
+	// FIRST2 of every nonterminal, to a fixed point
+	private BitSet[] first() {
+		BitSet[] first = new BitSet[this._names.size()];
+		for (int n = 0; n < first.length; ++n) {
+			first[n] = new BitSet();
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < this._lhs.size(); ++p) {
+				BitSet set = first[this._lhs.get(p) - TERMINALS];
+				int size = set.cardinality();
+				set.or(this.first(this._rhs.get(p), 0, first));
+				changed |= set.cardinality() != size;
+			}
+		}
+		return first;
+	}
+	
+	// FIRST2 of symbols from index from on
+	private BitSet first(int[] symbols, int from, BitSet[] first) {
+		BitSet result = new BitSet();
+		result.set(EMPTY);
+		for (int i = from; i < symbols.length; ++i) {
+			BitSet next;
+			if (symbols[i] < TERMINALS) {
+				next = new BitSet();
+				next.set((symbols[i] + 1) * WIDTH);
+			} else {
+				next = first[symbols[i] - TERMINALS];
+			}
+			result = concat(result, next);
+		}
+		return result;
+	}
+	
+	// FOLLOW2 of every nonterminal, to a fixed point
+	private BitSet[] follow(BitSet[] first, int start) {
+		BitSet[] follow = new BitSet[this._names.size()];
+		for (int n = 0; n < follow.length; ++n) {
+			follow[n] = new BitSet();
+		}
+		follow[start - TERMINALS].set(EMPTY);
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < this._lhs.size(); ++p) {
+				int[] rhs = this._rhs.get(p);
+				for (int i = 0; i < rhs.length; ++i) {
+					if (rhs[i] < TERMINALS) {
+						continue;
+					}
+					BitSet set = follow[rhs[i] - TERMINALS];
+					int size = set.cardinality();
+					set.or(concat(this.first(rhs, i + 1, first), follow[this._lhs.get(p) - TERMINALS]));
+					changed |= set.cardinality() != size;
+				}
+			}
+		}
+		return follow;
+	}
+	
+	// Strings of x followed by strings of y, cut to two tokens
+	private static BitSet concat(BitSet x, BitSet y) {
+		BitSet result = new BitSet();
+		for (int s = x.nextSetBit(0); s >= 0; s = x.nextSetBit(s + 1)) {
+			if (s % WIDTH != 0) {
+				result.set(s);
+			} else if (s != EMPTY) {
+				for (int r = y.nextSetBit(0); r >= 0; r = y.nextSetBit(r + 1)) {
+					result.set(s + r / WIDTH);
+				}
+			} else {
+				result.or(y);
+			}
+		}
+		return result;
+	}
+	
+	// Whether any string in set starts with token t
+	private static boolean startsWith(BitSet set, int t) {
+		int from = (t + 1) * WIDTH;
+		int next = set.nextSetBit(from);
+		return next >= 0 && next < from + WIDTH;
+	}
+	
+	// A nonterminal that can derive itself as its leftmost symbol would make
+	//  TableParser expand it forever
+	private void checkLeftRecursion(BitSet[] first, List<String> problems) {
+		int count = this._names.size();
+		boolean[][] leads = new boolean[count][count];
+		for (int p = 0; p < this._lhs.size(); ++p) {
+			int[] rhs = this._rhs.get(p);
+			for (int i = 0; i < rhs.length && rhs[i] >= TERMINALS; ++i) {
+				leads[this._lhs.get(p) - TERMINALS][rhs[i] - TERMINALS] = true;
+				if (!first[rhs[i] - TERMINALS].get(EMPTY)) {
+					break;
+				}
+			}
+		}
+		// Transitive closure, the grammar is small
+		for (int k = 0; k < count; ++k) {
+			for (int i = 0; i < count; ++i) {
+				if (leads[i][k]) {
+					for (int j = 0; j < count; ++j) {
+						leads[i][j] |= leads[k][j];
+					}
+				}
+			}
+		}
+		for (int n = 0; n < count; ++n) {
+			if (leads[n][n]) {
+				problems.add(this._names.get(n) + " is left recursive");
+			}
+		}
+	}
+	
+	// The production prefer() picked among candidates for the lookahead, or -1
+	private int preferred(List<Integer> candidates, int t, int u) {
+		for (int[] preference : this._preferences) {
+			if (preference[1] == t && preference[2] == u && candidates.contains(preference[0])) {
+				return preference[0];
+			}
+		}
+		return -1;
+	}
+	
+	// What nonterminal n expands on a token none of its productions is predicted on
+	private int otherwise(int n) {
+		Integer fallback = this._defaults.get(TERMINALS + n);
+		if (fallback != null) {
+			return fallback;
+		}
+		int only = -1;
+		int empty = -1;
+		int alternatives = 0;
+		for (int p = 0; p < this._lhs.size(); ++p) {
+			if (this._lhs.get(p) == TERMINALS + n) {
+				alternatives += 1;
+				only = p;
+				if (this._rhs.get(p).length == 0) {
+					empty = p;
+				}
+			}
+		}
+		return alternatives == 1 ? only : empty >= 0 ? empty : ERROR;
+	}
+	
+	private int production(String name, String alternative) {
+		int lhs = this.symbol(name);
+		String text = String.join(" ", alternative.trim().split("\\s+"));
+		for (int p = 0; p < this._lhs.size(); ++p) {
+			if (this._lhs.get(p) == lhs && this._text.get(p).equals(text)) {
+				return p;
+			}
+		}
+		throw new IllegalArgumentException(name + " has no alternative " + alternative);
+	}
+	
+	private String conflict(int n, List<Integer> productions, String lookahead) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(this._names.get(n)).append(" on ").append(lookahead).append(':');
+		for (int p : productions) {
+			sb.append(" [").append(this._text.get(p)).append(']');
+		}
+		return sb.toString();
+	}
+}
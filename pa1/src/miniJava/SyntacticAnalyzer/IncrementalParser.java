@@ -0,0 +1,291 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import miniJava.Diagnostic;
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.SyntaxTree;
+
+// Keeps the token stream and per-class parse results of a source that is being
+//  edited. An edit re-lexes from the last token starting before it until the
+//  scanner is back in the state it had before the edit. If the changed tokens
+//  are all inside one method body whose braces still match, only that body is
+//  parsed again, otherwise the class declarations whose tokens changed are.
+//
+// Each class declaration is parsed on its own, so recovery inside one class
+//  never carries over into the next. Its method bodies are parsed apart from
+//  the rest of it, as in a lazy parse, see Parser.setLazyBodies().
+public class IncrementalParser {
+	private static class Chunk {
+		int _start;
+		int _end;
+		List<Diagnostic> _errors;	// outside the method bodies, in the order reported
+		Body[] _bodies;
+		long _shift;		// bytes the class moved by since its errors were reported
+		
+		Chunk(int start, int end, List<Diagnostic> errors, Body[] bodies, long shift) {
+			this._start = start;
+			this._end = end;
+			this._errors = errors;
+			this._bodies = bodies;
+			this._shift = shift;
+		}
+	}
+	
+	// A method body, by token indices relative to the start of its class
+	private static class Body {
+		int _name;
+		int _open;
+		int _close;
+		List<Diagnostic> _errors;
+		long _shift;		// bytes moved by since its errors were reported, on top of the class's
+		
+		Body(int name, int open, int close, List<Diagnostic> errors, long shift) {
+			this._name = name;
+			this._open = open;
+			this._close = close;
+			this._errors = errors;
+			this._shift = shift;
+		}
+	}
+	
+	private TokenBuffer _tokens;
+	private List<Chunk> _chunks;
+	private int _relexedTokens = 0;
+	private int _reparsedClasses = 0;
+	private int _reparsedBodies = 0;
+	
+	public IncrementalParser(SourceInput source) {
+		this._tokens = new Scanner(source, new ErrorReporter()).scanAll();
+		this._chunks = new ArrayList<Chunk>();
+		
+		int eot = this._tokens.size() - 1;
+		for (int pos = 0; pos < eot; ) {
+			int end = ClassBoundaries.end(this._tokens, pos, eot);
+			this._chunks.add(this.parse(pos, end));
+			pos = end;
+		}
+		this._relexedTokens = this._tokens.size();
+		this._reparsedClasses = this._chunks.size();
+		for (Chunk chunk : this._chunks) {
+			this._reparsedBodies += chunk._bodies.length;
+		}
+	}
+	
+	public TokenBuffer getTokens() {
+		return this._tokens;
+	}
+	
+	// Number of tokens scanned, and of class declarations and method bodies
+	//  parsed, by the last update
+	public int getRelexedTokenCount() {
+		return this._relexedTokens;
+	}
+	
+	public int getReparsedClassCount() {
+		return this._reparsedClasses;
+	}
+	
+	public int getReparsedBodyCount() {
+		return this._reparsedBodies;
+	}
+	
+	public boolean hasErrors() {
+		return !this.getErrors().isEmpty();
+	}
+	
+	// The errors in source order, at the offsets their classes are at now
+	public List<Diagnostic> getErrors() {
+		List<Diagnostic> errors = new ArrayList<Diagnostic>();
+		for (Chunk chunk : this._chunks) {
+			// A class's other errors were reported in source order, each body's
+			//  go in among them where the body starts
+			List<Diagnostic> outline = chunk._errors;
+			int next = 0;
+			for (Body body : chunk._bodies) {
+				long open = this._tokens.start(chunk._start + body._open);
+				while (next < outline.size() && outline.get(next).getStart() + chunk._shift <= open) {
+					errors.add(outline.get(next++).moved(chunk._shift));
+				}
+				for (Diagnostic diagnostic : body._errors) {
+					errors.add(diagnostic.moved(chunk._shift + body._shift));
+				}
+			}
+			while (next < outline.size()) {
+				errors.add(outline.get(next++).moved(chunk._shift));
+			}
+		}
+		
+		// e.g. an unterminated comment at the end of the input
+		ErrorReporter trailing = new ErrorReporter();
+		this._tokens.reportErrors(this._tokens.size() - 1, this._tokens.size(), trailing);
+		errors.addAll(trailing.getDiagnostics());
+		return errors;
+	}
+	
+	// Replace deletedLength bytes at offset with insertedText.
+	public void edit(long offset, int deletedLength, String insertedText) throws IOException {
+		byte[] inserted = insertedText.getBytes(StandardCharsets.UTF_8);
+		long offsetDelta = inserted.length - deletedLength;
+		SourceInput source = EditedSourceInput.edit(this._tokens.getSource(), offset, deletedLength, inserted);
+		
+		// The line starts are updated from the edit itself, so the scanner
+		//  below finds every line it passes already known
+		LineMap lines = this._tokens.getLines();
+		lines.edit(offset, deletedLength, inserted);
+		
+		// Restart at the last token starting before the edit, in the state the
+		//  scanner was in after the token before it
+		int from = Math.max(this._tokens.lastStartingBefore(offset), 0);
+		ErrorReporter ignored = new ErrorReporter(); // not used, lexical errors are kept in the buffer
+		SymbolTable symbols = this._tokens.getSymbols();
+		Scanner scanner;
+		if (from == 0) {
+			scanner = new Scanner(source, ignored, symbols, lines);
+		} else {
+			scanner = new Scanner(source, ignored, symbols, lines, this._tokens.end(from - 1));
+		}
+		
+		// Scan until a new token ends where an old one did, past the edit. The
+		//  scanner's state is its offset, so everything after that is unchanged
+		//  apart from its offset.
+		TokenBuffer fresh = new TokenBuffer(source, symbols, lines);
+		int oldEot = this._tokens.size() - 1;
+		int to = this._tokens.size();
+		while (scanner.scan(fresh) != TokenType.EOT) {
+			int last = fresh.size() - 1;
+			long end = fresh.end(last);
+			if (end < offset + inserted.length) {
+				continue;
+			}
+			int k = this._tokens.endingAt(end - offsetDelta);
+			if (k >= from && k < oldEot) {
+				to = k + 1;
+				break;
+			}
+		}
+		
+		int tokenDelta = fresh.size() - (to - from);
+		this._tokens.splice(from, to, fresh, offsetDelta);
+		this._relexedTokens = fresh.size();
+		this.reparse(from, to, tokenDelta, offsetDelta);
+	}
+	
+	// Re-parse the method body holding the replaced tokens [from, to) (old
+	//  indices) if there is one, or else re-split and re-parse the classes
+	//  touching them, reusing the ones after it
+	private void reparse(int from, int to, int tokenDelta, long offsetDelta) {
+		this._reparsedClasses = 0;
+		this._reparsedBodies = 0;
+		if (this.reparseBody(from, to, tokenDelta, offsetDelta)) {
+			return;
+		}
+		
+		int first = 0;
+		while (first < this._chunks.size() && this._chunks.get(first)._end < from) {
+			first += 1;
+		}
+		
+		List<Chunk> chunks = new ArrayList<Chunk>(this._chunks.subList(0, first));
+		int pos = first < this._chunks.size() ? this._chunks.get(first)._start : (first > 0 ? this._chunks.get(first - 1)._end : 0);
+		int changedEnd = to + tokenDelta;
+		int eot = this._tokens.size() - 1;
+		int next = first;
+		
+		while (pos < eot) {
+			while (next < this._chunks.size() && this._chunks.get(next)._start + tokenDelta < pos) {
+				next += 1;
+			}
+			if (pos >= changedEnd && next < this._chunks.size()
+					&& this._chunks.get(next)._start + tokenDelta == pos) {
+				// Back in step with the old classes, keep them. Their errors
+				//  moved with them, along with the offsets they were reported at.
+				for (int i = next; i < this._chunks.size(); ++i) {
+					Chunk old = this._chunks.get(i);
+					chunks.add(new Chunk(old._start + tokenDelta, old._end + tokenDelta, old._errors, old._bodies, old._shift + offsetDelta));
+				}
+				break;
+			}
+			
+			int end = ClassBoundaries.end(this._tokens, pos, eot);
+			Chunk chunk = this.parse(pos, end);
+			chunks.add(chunk);
+			this._reparsedClasses += 1;
+			this._reparsedBodies += chunk._bodies.length;
+			pos = end;
+		}
+		this._chunks = chunks;
+	}
+	
+	// If the replaced tokens [from, to) (old indices) are all inside one method
+	//  body, past its { and before its }, and its { still matches the same },
+	//  re-parse just that body. The rest of its class parses as before, as a
+	//  lazy parse skips bodies by brace matching. Returns whether it did.
+	private boolean reparseBody(int from, int to, int tokenDelta, long offsetDelta) {
+		int c = 0;
+		while (c < this._chunks.size() && this._chunks.get(c)._end <= from) {
+			c += 1;
+		}
+		if (c == this._chunks.size()) {
+			return false;
+		}
+		Chunk chunk = this._chunks.get(c);
+		Body[] bodies = chunk._bodies;
+		int b = 0;
+		while (b < bodies.length && chunk._start + bodies[b]._close < to) {
+			b += 1;
+		}
+		if (b == bodies.length) {
+			return false;
+		}
+		Body body = bodies[b];
+		int open = chunk._start + body._open;
+		int close = chunk._start + body._close + tokenDelta;
+		if (from <= open || ClassBoundaries.blockEnd(this._tokens, open, chunk._end + tokenDelta) != close) {
+			return false;
+		}
+		
+		// The class's other errors after the body moved with it
+		long openStart = this._tokens.start(open);
+		List<Diagnostic> errors = new ArrayList<Diagnostic>(chunk._errors.size());
+		for (Diagnostic diagnostic : chunk._errors) {
+			errors.add(diagnostic.getStart() + chunk._shift > openStart ? diagnostic.moved(offsetDelta) : diagnostic);
+		}
+		Body[] moved = new Body[bodies.length];
+		for (int i = 0; i < bodies.length; ++i) {
+			Body old = bodies[i];
+			moved[i] = i < b ? old : new Body(old._name + tokenDelta, old._open + tokenDelta, old._close + tokenDelta, old._errors, old._shift + offsetDelta);
+		}
+		// Reported where the body is now, before the class's shift is added
+		List<Diagnostic> bodyErrors = new MethodBody(this._tokens, chunk._start + body._name, open, close, SyntaxTree.NONE, false).getErrors();
+		moved[b] = new Body(body._name, body._open, close - chunk._start, bodyErrors, -chunk._shift);
+		
+		List<Chunk> chunks = new ArrayList<Chunk>(this._chunks.size());
+		chunks.addAll(this._chunks.subList(0, c));
+		chunks.add(new Chunk(chunk._start, chunk._end + tokenDelta, errors, moved, chunk._shift));
+		for (int i = c + 1; i < this._chunks.size(); ++i) {
+			Chunk old = this._chunks.get(i);
+			chunks.add(new Chunk(old._start + tokenDelta, old._end + tokenDelta, old._errors, old._bodies, old._shift + offsetDelta));
+		}
+		this._chunks = chunks;
+		this._reparsedBodies = 1;
+		return true;
+	}
+	
+	private Chunk parse(int start, int end) {
+		ErrorReporter errors = new ErrorReporter();
+		Parser parser = new Parser(new TokenCursor(this._tokens, start, end), errors);
+		parser.setLazyBodies(true);
+		parser.parse();
+		List<MethodBody> methodBodies = parser.getMethodBodies();
+		Body[] bodies = new Body[methodBodies.size()];
+		for (int i = 0; i < bodies.length; ++i) {
+			MethodBody body = methodBodies.get(i);
+			bodies[i] = new Body(body.getNameToken() - start, body.getStart() - start, body.getEnd() - start, body.getErrors(), 0);
+		}
+		return new Chunk(start, end, errors.getDiagnostics(), bodies, 0);
+	}
+}
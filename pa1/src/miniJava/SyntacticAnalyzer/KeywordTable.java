@@ -0,0 +1,103 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+// Collision-free hash table of the reserved words declared in TokenType.
+//  A word hashes on its first character, last character and length, so an
+//  identifier is checked with one probe and one comparison once it is fully
+//  scanned. The multipliers are searched for when the class is loaded.
+final class KeywordTable {
+	private static final String[] WORDS;
+	private static final TokenType[] TYPES;
+	private static final int MASK;
+	private static final int FIRST_MULTIPLIER;
+	private static final int LAST_MULTIPLIER;
+	
+	static {
+		int count = 0;
+		for (TokenType type : TokenType.values()) {
+			count += type.getKeywords().length;
+		}
+		String[] words = new String[count];
+		TokenType[] types = new TokenType[count];
+		int k = 0;
+		for (TokenType type : TokenType.values()) {
+			for (String word : type.getKeywords()) {
+				words[k] = word;
+				types[k] = type;
+				k += 1;
+			}
+		}
+		
+		int size = Integer.highestOneBit(Math.max(count, 1)) * 2;
+		int[] multipliers = search(words, size);
+		while (multipliers == null) {
+			if (size >= (1 << 16)) {
+				// Two reserved words share first character, last character and length
+				throw new IllegalStateException("Reserved words cannot be perfectly hashed");
+			}
+			size *= 2;
+			multipliers = search(words, size);
+		}
+		
+		MASK = size - 1;
+		FIRST_MULTIPLIER = multipliers[0];
+		LAST_MULTIPLIER = multipliers[1];
+		WORDS = new String[size];
+		TYPES = new TokenType[size];
+		for (int i = 0; i < count; ++i) {
+			int h = slot(words[i], FIRST_MULTIPLIER, LAST_MULTIPLIER, MASK);
+			WORDS[h] = words[i];
+			TYPES[h] = types[i];
+		}
+	}
+	
+	private KeywordTable() { }
+	
+	// Find multipliers that give every word its own slot, or null if none do
+	private static int[] search(String[] words, int size) {
+		boolean[] used = new boolean[size];
+		for (int first = 1; first < 256; ++first) {
+			for (int last = 1; last < 256; ++last) {
+				Arrays.fill(used, false);
+				boolean collision = false;
+				for (String word : words) {
+					int h = slot(word, first, last, size - 1);
+					if (used[h]) {
+						collision = true;
+						break;
+					}
+					used[h] = true;
+				}
+				if (!collision) {
+					return new int[] { first, last };
+				}
+			}
+		}
+		return null;
+	}
+	
+	private static int slot(String word, int first, int last, int mask) {
+		return hash(word.charAt(0), word.charAt(word.length() - 1), word.length(), first, last, mask);
+	}
+	
+	private static int hash(char firstChar, char lastChar, int length, int first, int last, int mask) {
+		return (firstChar * first + lastChar * last + length) & mask;
+	}
+	
+	// Return the keyword type of the text, or Identifier if it is not reserved.
+	static TokenType lookup(CharSequence text) {
+		int length = text.length();
+		int h = hash(text.charAt(0), text.charAt(length - 1), length, FIRST_MULTIPLIER, LAST_MULTIPLIER, MASK);
+		String word = WORDS[h];
+		if (word == null || word.length() != length) {
+			return TokenType.Identifier;
+		}
+		for (int i = 0; i < length; ++i) {
+			if (word.charAt(i) != text.charAt(i)) {
+				return TokenType.Identifier;
+			}
+		}
+		return TYPES[h];
+	}
+}
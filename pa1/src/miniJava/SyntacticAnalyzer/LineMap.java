@@ -0,0 +1,230 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+// Offsets at which the lines of a source start, recorded by the Scanner as it
+//  passes line breaks. Tokens and diagnostics only keep byte offsets, and
+//  lines and columns are looked up here when someone asks for them.
+//
+// Columns count characters, not bytes, so the Scanner also records where the
+//  multi-byte UTF-8 characters are. Most sources have none, and for those a
+//  column is just the distance from the line start.
+//
+// A PipelinedScanner records lines on its own thread while the parser looks
+//  them up, so both the array and the count are published through volatile
+//  writes. Lines are only looked up for tokens that were already handed over.
+public class LineMap {
+	private volatile long[] _starts;
+	private volatile int _count;
+	private volatile long[] _wideStarts;	// offsets of the multi-byte characters
+	private volatile long[] _extraBytes;	// bytes past the first of those characters, up to and including each
+	private volatile int _wideCount;
+	
+	public LineMap() {
+		this._starts = new long[64];
+		this._count = 1; // the first line starts at 0
+		this._wideStarts = new long[0];
+		this._extraBytes = new long[0];
+	}
+	
+	// Record that a line starts at offset. Lines already known are ignored,
+	//  so a Scanner restarted in the middle of a source can keep recording.
+	public void add(long offset) {
+		int count = this._count;
+		long[] starts = this._starts;
+		if (offset <= starts[count - 1]) {
+			return;
+		}
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			this._starts = starts;
+		}
+		starts[count] = offset;
+		this._count = count + 1;
+	}
+	
+	// Record that a character of length bytes starts at offset. As with add(),
+	//  characters already known are ignored.
+	public void addWide(long offset, int length) {
+		int count = this._wideCount;
+		long[] starts = this._wideStarts;
+		long[] extra = this._extraBytes;
+		if (count > 0 && offset <= starts[count - 1]) {
+			return;
+		}
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, Math.max(count * 2, 64));
+			extra = Arrays.copyOf(extra, starts.length);
+			this._wideStarts = starts;
+			this._extraBytes = extra;
+		}
+		starts[count] = offset;
+		extra[count] = (count > 0 ? extra[count - 1] : 0) + length - 1;
+		this._wideCount = count + 1;
+	}
+	
+	// Lines as given by lineCount() and lineStart(), and characters as given by
+	//  wideCount(), wideStart() and wideLength(), e.g. as saved by CompileCache
+	public static LineMap of(long[] starts, long[] wideStarts, int[] wideLengths) {
+		LineMap lines = new LineMap();
+		lines._starts = Arrays.copyOf(starts, Math.max(starts.length, 64));
+		lines._count = starts.length;
+		for (int i = 0; i < wideStarts.length; ++i) {
+			lines.addWide(wideStarts[i], wideLengths[i]);
+		}
+		return lines;
+	}
+	
+	public int lineCount() {
+		return this._count;
+	}
+	
+	// Offset at which a line starts, counting lines from 1
+	public long lineStart(int line) {
+		return this._starts[line - 1];
+	}
+	
+	public int wideCount() {
+		return this._wideCount;
+	}
+	
+	// Offset of a multi-byte character, counting them from 0
+	public long wideStart(int index) {
+		return this._wideStarts[index];
+	}
+	
+	public int wideLength(int index) {
+		long[] extra = this._extraBytes;
+		return (int) (extra[index] - (index > 0 ? extra[index - 1] : 0)) + 1;
+	}
+	
+	// Line containing offset, counting from 1
+	public int line(long offset) {
+		int count = this._count;
+		long[] starts = this._starts;
+		int lo = 0;
+		int hi = count - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (starts[mid] <= offset) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo + 1;
+	}
+	
+	// Column of offset within its line in characters, counting from 1
+	public int column(long offset) {
+		return this.column(offset, this._starts[this.line(offset) - 1]);
+	}
+	
+	public SourcePosition position(long offset) {
+		int line = this.line(offset);
+		return new SourcePosition(line, this.column(offset, this._starts[line - 1]));
+	}
+	
+	private int column(long offset, long lineStart) {
+		long bytes = offset - lineStart;
+		if (this._wideCount == 0) {
+			return (int) bytes + 1;
+		}
+		return (int) (bytes - this.extraBefore(offset) + this.extraBefore(lineStart)) + 1;
+	}
+	
+	// Bytes past the first of the multi-byte characters starting before offset
+	private long extraBefore(long offset) {
+		int count = this._wideCount;
+		long[] starts = this._wideStarts;
+		long[] extra = this._extraBytes;
+		int lo = 0;
+		int hi = count;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (starts[mid] < offset) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo > 0 ? extra[lo - 1] : 0;
+	}
+	
+	// Replace deletedLength bytes at offset with inserted, moving the lines after it
+	void edit(long offset, int deletedLength, byte[] inserted) {
+		long delta = inserted.length - deletedLength;
+		long[] starts = this._starts;
+		int count = this._count;
+		
+		// Lines starting inside the deleted bytes go, the ones after it move
+		int kept = this.line(offset);
+		int tail = kept;
+		while (tail < count && starts[tail] <= offset + deletedLength) {
+			tail += 1;
+		}
+		int added = 0;
+		for (byte b : inserted) {
+			if (b == '\n') {
+				added += 1;
+			}
+		}
+		
+		int newCount = kept + added + count - tail;
+		long[] edited = new long[Math.max(newCount, 64)];
+		System.arraycopy(starts, 0, edited, 0, kept);
+		int n = kept;
+		for (int i = 0; i < inserted.length; ++i) {
+			if (inserted[i] == '\n') {
+				edited[n++] = offset + i + 1;
+			}
+		}
+		for (int i = tail; i < count; ++i) {
+			edited[n++] = starts[i] + delta;
+		}
+		this._starts = edited;
+		this._count = newCount;
+		this.editWide(offset, deletedLength, inserted);
+	}
+	
+	// Characters inside the deleted bytes go, the ones after it move, and the
+	//  inserted bytes are decoded as the Scanner would
+	private void editWide(long offset, int deletedLength, byte[] inserted) {
+		long delta = inserted.length - deletedLength;
+		int count = this._wideCount;
+		long[] starts = this._wideStarts;
+		int kept = 0;
+		while (kept < count && starts[kept] < offset) {
+			kept += 1;
+		}
+		int tail = kept;
+		while (tail < count && starts[tail] < offset + deletedLength) {
+			tail += 1;
+		}
+		
+		long[] oldStarts = Arrays.copyOfRange(starts, tail, count);
+		int[] oldLengths = new int[count - tail];
+		for (int i = tail; i < count; ++i) {
+			oldLengths[i - tail] = this.wideLength(i);
+		}
+		this._wideCount = kept;
+		for (int i = 0; i < inserted.length; ++i) {
+			int b0 = inserted[i] & 0xFF;
+			if (b0 < 0x80) {
+				continue;
+			}
+			int length = Math.abs(Utf8.length(b0, byteAt(inserted, i + 1), byteAt(inserted, i + 2), byteAt(inserted, i + 3)));
+			if (length > 1) {
+				this.addWide(offset + i, length);
+			}
+			i += length - 1;
+		}
+		for (int i = 0; i < oldStarts.length; ++i) {
+			this.addWide(oldStarts[i] + delta, oldLengths[i]);
+		}
+	}
+	
+	private static int byteAt(byte[] bytes, int index) {
+		return index < bytes.length ? bytes[index] & 0xFF : SourceInput.EOT;
+	}
+}
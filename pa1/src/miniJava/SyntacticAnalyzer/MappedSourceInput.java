@@ -0,0 +1,84 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+
+// Memory-maps a file. A single MappedByteBuffer is limited to 2 GB,
+//  so larger files are mapped as a sequence of fixed-size regions.
+//  Also reads a stored entry in place from a mapped SourceArchive.
+public class MappedSourceInput extends SourceInput {
+	private static final int REGION_BITS = 30;
+	private static final long REGION_SIZE = 1L << REGION_BITS;
+	private static final long REGION_MASK = REGION_SIZE - 1;
+	
+	private ByteBuffer[] _regions;
+	private long _length;
+	
+	public MappedSourceInput(FileChannel channel) throws IOException {
+		this._length = channel.size();
+		
+		int regionCount = (int) ((this._length + REGION_SIZE - 1) >>> REGION_BITS);
+		this._regions = new ByteBuffer[regionCount];
+		for (int i = 0; i < regionCount; ++i) {
+			long start = (long) i << REGION_BITS;
+			long size = Math.min(REGION_SIZE, this._length - start);
+			this._regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+			this._regions[i].order(ByteOrder.LITTLE_ENDIAN);	// for wordAt
+		}
+	}
+	
+	// The bytes of an already mapped buffer, such as part of a larger mapping,
+	//  split into regions like a file
+	MappedSourceInput(ByteBuffer bytes) {
+		this._length = bytes.remaining();
+		
+		int regionCount = (int) ((this._length + REGION_SIZE - 1) >>> REGION_BITS);
+		this._regions = new ByteBuffer[regionCount];
+		for (int i = 0; i < regionCount; ++i) {
+			int start = bytes.position() + (i << REGION_BITS);
+			ByteBuffer region = bytes.duplicate();
+			region.position(start);
+			region.limit(start + (int) Math.min(REGION_SIZE, this._length - ((long) i << REGION_BITS)));
+			this._regions[i] = region.slice().order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+	
+	@Override
+	public int byteAt(long offset) {
+		if (offset >= this._length) {
+			return EOT;
+		}
+		return this._regions[(int) (offset >>> REGION_BITS)].get((int) (offset & REGION_MASK)) & 0xFF;
+	}
+	
+	@Override
+	public boolean hasWord(long offset) {
+		return offset + 8 <= this._length;
+	}
+	
+	@Override
+	public long wordAt(long offset) throws IOException {
+		int index = (int) (offset & REGION_MASK);
+		ByteBuffer region = this._regions[(int) (offset >>> REGION_BITS)];
+		if (index + 8 > region.limit()) {
+			// Straddles two regions
+			return super.wordAt(offset);
+		}
+		return region.getLong(index);
+	}
+	
+	@Override
+	public long length() {
+		return this._length;
+	}
+	
+	@Override
+	public void digest(MessageDigest digest) {
+		for (ByteBuffer region : this._regions) {
+			digest.update(region.duplicate());
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.List;
+
+import miniJava.Diagnostic;
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.SyntaxTree;
+
+// A method body skipped by a lazy parse, see Parser.setLazyBodies(). Its
+//  statements are parsed the first time they are asked for, once, by
+//  whichever thread asks first.
+public class MethodBody {
+	private final TokenBuffer _tokens;
+	private final int _name;		// token index of the method name
+	private final int _open;		// the { and } around the body
+	private final int _close;
+	private final int _method;		// MethodDecl node in the outline tree, or SyntaxTree.NONE
+	private final boolean _buildTree;
+	
+	// Written before _parsed is set, so readers that see _parsed see them
+	private List<Diagnostic> _errors;
+	private SyntaxTree _tree;
+	private volatile boolean _parsed = false;
+	
+	MethodBody(TokenBuffer tokens, int name, int open, int close, int method, boolean buildTree) {
+		this._tokens = tokens;
+		this._name = name;
+		this._open = open;
+		this._close = close;
+		this._method = method;
+		this._buildTree = buildTree;
+	}
+	
+	public String getName() {
+		return this._tokens.text(this._name);
+	}
+	
+	public int getNameToken() {
+		return this._name;
+	}
+	
+	// Token index of the {
+	public int getStart() {
+		return this._open;
+	}
+	
+	// Token index of the }
+	public int getEnd() {
+		return this._close;
+	}
+	
+	public int getMethodNode() {
+		return this._method;
+	}
+	
+	public boolean isParsed() {
+		return this._parsed;
+	}
+	
+	// Errors in the body, lexical errors included, parsing it if not yet done
+	public List<Diagnostic> getErrors() {
+		this.parse();
+		return this._errors;
+	}
+	
+	public boolean hasErrors() {
+		return !this.getErrors().isEmpty();
+	}
+	
+	// The body as a tree rooted at its BlockStmt, or null if the outline was
+	//  parsed without building a tree
+	public SyntaxTree getTree() {
+		this.parse();
+		return this._tree;
+	}
+	
+	public void parse() {
+		if (this._parsed) {
+			return;
+		}
+		synchronized (this) {
+			if (this._parsed) {
+				return;
+			}
+			// The braces had their lexical errors reported with the outline
+			ErrorReporter errors = new ErrorReporter();
+			Parser parser = new Parser(new TokenCursor(this._tokens, this._open, this._close + 1), errors, this._open + 1, this._close);
+			parser.setBuildTree(this._buildTree);
+			parser.parseBody();
+			this._errors = errors.getDiagnostics();
+			this._tree = parser.getTree();
+			this._parsed = true;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.NodeKind;
+
+// Parses the top-level class declarations of one token buffer in parallel.
+//  A pre-pass finds class boundaries by brace matching, each class is parsed
+//  on a fork-join pool, and diagnostics are merged back in source order.
+//  The reported errors are exactly those of a sequential parse.
+public class ParallelParser {
+	// Classes are grouped so each task has at least this many tokens
+	private static final int MIN_TOKENS_PER_TASK = 8192;
+	
+	private TokenBuffer _tokens;
+	private ErrorReporter _errors;
+	private int[] _starts;		// first token of each class, plus the EOT index at the end
+	private boolean[] _failed;
+	private int[] _productions;		// completed productions by NodeKind, null unless counting
+	private int[][] _classProductions;
+	
+	public ParallelParser(TokenBuffer tokens, ErrorReporter errors) {
+		this._tokens = tokens;
+		this._errors = errors;
+	}
+	
+	// Count completed productions into counts, as Parser.setProductionCounts()
+	//  would for a sequential parse
+	public void setProductionCounts(int[] counts) {
+		this._productions = counts;
+	}
+	
+	private class ParseRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private int _from;
+		private int _to;
+		
+		ParseRange(int from, int to) {
+			this._from = from;
+			this._to = to;
+		}
+		
+		@Override
+		protected void compute() {
+			if (this._to - this._from == 1 || _starts[this._to] - _starts[this._from] <= MIN_TOKENS_PER_TASK) {
+				for (int i = this._from; i < this._to; ++i) {
+					// Only whether the class is clean matters, so stop at its first error
+					ErrorReporter errors = new ErrorReporter();
+					errors.setErrorLimit(1);
+					try {
+						Parser parser = new Parser(new TokenCursor(_tokens, _starts[i], _starts[i + 1]), errors);
+						if (_classProductions != null) {
+							_classProductions[i] = new int[NodeKind.values().length];
+							parser.setProductionCounts(_classProductions[i]);
+						}
+						parser.parse();
+					} catch (ErrorReporter.LimitReached e) {
+						// Failed, it is parsed again below
+					}
+					_failed[i] = errors.hasErrors();
+				}
+				return;
+			}
+			int mid = (this._from + this._to) >>> 1;
+			invokeAll(new ParseRange(this._from, mid), new ParseRange(mid, this._to));
+		}
+	}
+	
+	public void parse() {
+		int eot = this._tokens.size() - 1;
+		int count = 0;
+		this._starts = new int[16];
+		for (int pos = 0; pos < eot; pos = ClassBoundaries.end(this._tokens, pos, eot)) {
+			if (count + 1 == this._starts.length) {
+				this._starts = Arrays.copyOf(this._starts, count * 2);
+			}
+			this._starts[count++] = pos;
+		}
+		this._starts[count] = eot;
+		
+		if (count <= 1) {
+			Parser parser = new Parser(this._tokens.cursor(), this._errors);
+			parser.setProductionCounts(this._productions);
+			parser.parse();
+			return;
+		}
+		
+		this._failed = new boolean[count];
+		this._classProductions = this._productions != null ? new int[count][] : null;
+		ParseRange task = new ParseRange(0, count);
+		if (ForkJoinTask.inForkJoinPool()) {
+			// e.g. inside batch compilation, share that pool
+			task.invoke();
+		} else {
+			ForkJoinPool.commonPool().invoke(task);
+		}
+		
+		// Clean classes report nothing. From a failing class parse sequentially,
+		//  as recovery may run past its end, until the parser resynchronizes at
+		//  the start of a clean class. The error limit stops this as it would a
+		//  sequential parse, by throwing LimitReached.
+		int counted = 0;	// clean classes before this one that were not parsed again
+		for (int i = 0; i < count; ++i) {
+			if (!this._failed[i]) {
+				continue;
+			}
+			this.addProductions(counted, i);
+			Parser parser = new Parser(new TokenCursor(this._tokens, this._starts[i], this._tokens.size()), this._errors);
+			parser.setProductionCounts(this._productions);
+			int resume = parser.parseUntil(this::startsCleanClass);
+			if (resume < 0) {
+				this.addProgram();
+				return;
+			}
+			i = Arrays.binarySearch(this._starts, 0, count, resume);
+			counted = i;
+		}
+		this.addProductions(counted, count);
+		this.addProgram();
+		
+		// The last class parsed, what is left is the end of the input
+		this._tokens.reportErrors(eot, eot + 1, this._errors);
+	}
+	
+	// Add what the clean classes in [from, to) counted on their own, except
+	//  the Program each of them completed as if it were a whole input
+	private void addProductions(int from, int to) {
+		if (this._productions == null) {
+			return;
+		}
+		for (int i = from; i < to; ++i) {
+			int[] counts = this._classProductions[i];
+			for (int kind = 0; kind < counts.length; ++kind) {
+				if (kind != NodeKind.Program.ordinal()) {
+					this._productions[kind] += counts[kind];
+				}
+			}
+		}
+	}
+	
+	private void addProgram() {
+		if (this._productions != null) {
+			this._productions[NodeKind.Program.ordinal()] += 1;
+		}
+	}
+	
+	private boolean startsCleanClass(int index) {
+		int i = Arrays.binarySearch(this._starts, 0, this._failed.length, index);
+		return i >= 0 && !this._failed[i];
+	}
+}
@@ -0,0 +1,42 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.AbstractSyntaxTrees.NodeKind;
+
+// Receives a parse as it happens, see Parser.setListener(). A listener sees
+//  every node the SyntaxTree would have, in the order the tree is built, with
+//  no tree kept: memory stays the same however long the input is.
+//
+// Classes, members, statements and expressions are also entered before they
+//  are parsed, and each enter is matched by its exit unless a syntax error
+//  cuts it short, see abandon(). Tokens are indices into the parser's tokens,
+//  symbols are SymbolTable IDs or SymbolTable.NONE, as in a SyntaxTree.
+public interface ParseListener {
+	// token is the class keyword
+	void enterClass(int token);
+	
+	// name is the class name
+	void exitClass(int name, int symbol);
+	
+	// token is the first token of a field or method
+	void enterMember(int token);
+	
+	// kind is FieldDecl or MethodDecl, name is its name
+	void exitMember(NodeKind kind, int name, int symbol);
+	
+	void enterStatement(int token);
+	
+	// kind and token as the statement's node records them, see NodeKind
+	void exitStatement(NodeKind kind, int token, int symbol);
+	
+	// A whole expression, such as an initializer, argument or condition
+	void enterExpression(int token);
+	
+	void exitExpression();
+	
+	// Any other node: modifiers, types, parameters, references and the parts of expressions
+	void node(NodeKind kind, int token, int symbol);
+	
+	// A syntax error ended the innermost count entered rules with no exit.
+	//  The nodes reported inside them are not part of the program.
+	void abandon(int count);
+}
@@ -1,159 +1,352 @@
 package miniJava.SyntacticAnalyzer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+import miniJava.Diagnostic;
+import miniJava.DiagnosticCode;
 import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.NodeKind;
+import miniJava.AbstractSyntaxTrees.SyntaxTree;
+import miniJava.AbstractSyntaxTrees.SyntaxTreeBuilder;
 
 public class Parser {
-	private Scanner _scanner;
-	private ErrorReporter _errors;
-	private Token _currentToken;
+	private TokenStream _tokens;
+	private ErrorRecovery _recovery;	// reports syntax errors and suppresses their cascades
+	private TokenType _currentType;
+	private TokenCursor _cursor;		// when parsing from a token buffer
+	private SyntaxTreeBuilder _tree;	// null unless building a tree
+	private List<MethodBody> _bodies;	// null unless method bodies are parsed lazily
+	private int[] _productions;			// completed productions by NodeKind, null unless counting
+	private ParseListener _listener;	// null unless streaming events
+	private int _entered;				// rules entered and not yet exited, for the listener
+	
+	// Pending operators of the expressions being parsed, as precedences and token indices
+	private int[] _operators = new int[16];
+	private int[] _operatorTokens = new int[16];
+	private int _operatorCount;
+	
+	// Prefix operators bind tighter than any binary operator
+	private static final int UNARY = ScannerTables.MULTIPLICATIVE + 1;
+	
+	// Rules a ParseListener is told are entered
+	private enum Rule { Class, Member, Statement, Expression }
 	
 	public Parser( Scanner scanner, ErrorReporter errors ) {
-		this._scanner = scanner;
-		this._errors = errors;
-		this._currentToken = this._scanner.scan();
+		this(new ScannerTokenStream(scanner), errors);
+	}
+	
+	// Parse from a compact token buffer without allocating Token objects
+	//  Lexical errors kept in the buffer are reported as their tokens are reached.
+	public Parser( TokenCursor cursor, ErrorReporter errors ) {
+		this(cursor, errors, cursor.index(), cursor.limit());
 	}
 	
-	class SyntaxError extends Error {
+	// Parse while a scanner thread runs ahead, see PipelinedScanner
+	public Parser( PipelinedScanner tokens, ErrorReporter errors ) {
+		this((TokenStream) tokens, errors);
+		tokens.replayErrors(errors);
+	}
+	
+	// Only lexical errors of the tokens in [errorsFrom, errorsTo) are reported
+	Parser( TokenCursor cursor, ErrorReporter errors, int errorsFrom, int errorsTo ) {
+		this((TokenStream) cursor, errors);
+		this._cursor = cursor;
+		cursor.replayErrors(errors, errorsFrom, errorsTo);
+	}
+	
+	private Parser( TokenStream tokens, ErrorReporter errors ) {
+		this._tokens = tokens;
+		this._recovery = new ErrorRecovery(tokens, errors);
+		this._currentType = this._tokens.type();
+	}
+	
+	// Thrown to unwind to the nearest recovery point. Carries no stack trace
+	//  and is shared, so a failing parse allocates nothing.
+	static final class SyntaxError extends Error {
 		private static final long serialVersionUID = -6461942006097999362L;
+		
+		static final SyntaxError INSTANCE = new SyntaxError();
+		
+		private SyntaxError() {
+			super(null, null, false, false);
+		}
+	}
+	
+	// Build a SyntaxTree while parsing. Off by default, checking syntax alone is cheaper.
+	public void setBuildTree(boolean build) {
+		this._tree = build ? new SyntaxTreeBuilder(new SyntaxTree(this._cursor != null ? this._cursor.getTokens() : null)) : null;
+	}
+	
+	// The tree built by parse(), or null if not building one. Its root is
+	//  SyntaxTree.NONE if parsing gave up at the error limit.
+	public SyntaxTree getTree() {
+		return this._tree != null ? this._tree.getTree() : null;
+	}
+	
+	// Count every completed production into counts, indexed by NodeKind ordinal.
+	//  Productions undone by error recovery are counted too.
+	public void setProductionCounts(int[] counts) {
+		this._productions = counts;
+	}
+	
+	// Report the parse to listener as it goes, see ParseListener. With no tree
+	//  built as well, nothing is kept of what has been parsed.
+	public void setListener(ParseListener listener) {
+		this._listener = listener;
+	}
+	
+	// Skip method bodies, only recording where they are, for passes that need
+	//  just the classes and method signatures. See getMethodBodies().
+	//  A body's extent is found by brace matching, so on broken input the
+	//  errors can differ from those of a full parse.
+	public void setLazyBodies(boolean lazy) {
+		if (lazy && this._cursor == null) {
+			throw new IllegalStateException("Lazy method bodies need a token buffer");
+		}
+		this._bodies = lazy ? new ArrayList<MethodBody>() : null;
+	}
+	
+	// The bodies skipped by a lazy parse, in source order
+	public List<MethodBody> getMethodBodies() {
+		return this._bodies;
 	}
 	
 	public void parse() {
 		try {
 			// The first thing we need to parse is the Program symbol
 			parseProgram();
-		} catch( SyntaxError e ) { }
+		} catch( SyntaxError e ) {
+			this.abandonTree();
+			this.abandon(0);
+		} catch( ErrorReporter.LimitReached e ) {
+			this.abandonTree();
+			this.abandon(0);
+			throw e;
+		}
+	}
+	
+	// { Statement* } of a lazily parsed method body
+	void parseBody() {
+		try {
+			this.parseStatement();
+		} catch (SyntaxError e) {
+			this.abandonTree();
+			this.abandon(0);
+		}
 	}
 	
 	// Program ::= (ClassDeclaration)* eot
 	private void parseProgram() throws SyntaxError {
+		int mark = this.mark();
 		// Keep parsing class declarations until eot
-		while (this._currentToken.getTokenType() != TokenType.EOT) {
-			parseClassDeclaration();
+		while (this._currentType != TokenType.EOT) {
+			this.parseTopLevel();
 		}
 		this.accept(TokenType.EOT);
+		this.node(NodeKind.Program, SyntaxTree.NONE, mark);
+	}
+	
+	// Parse from a token buffer until back at the top level with no error cascade
+	//  pending, at a token index stop accepts. From there on a parse behaves as a
+	//  fresh one would. Returns that index, or -1 once eot is reached.
+	int parseUntil(IntPredicate stop) {
+		try {
+			while (this._currentType != TokenType.EOT) {
+				if (!this._recovery.isRecovering() && stop.test(this._cursor.index())) {
+					return this._cursor.index();
+				}
+				this.parseTopLevel();
+			}
+			this.accept(TokenType.EOT);
+		} catch (SyntaxError e) { }
+		return -1;
+	}
+	
+	// One class declaration, or whatever up to the next class if it is broken
+	private void parseTopLevel() throws SyntaxError {
+		int mark = this.mark();
+		int size = this.treeSize();
+		int entered = this._entered;
+		try {
+			parseClassDeclaration();
+		} catch (SyntaxError e) {
+			this.recover(mark, size, entered);
+			// Resume at the next class
+			this._recovery.skipToClass();
+			this._currentType = this._tokens.type();
+		}
 	}
 	
 	// ClassDeclaration ::= class identifier { (FieldDeclaration|MethodDeclaration)* }
 	private void parseClassDeclaration() throws SyntaxError {
 		// Take in a "class" token (check by the TokenType)
 		//  What should be done if the first token isn't "class"?
+		int mark = this.mark();
+		this.enter(Rule.Class);
 		this.accept(TokenType.Class);
 		
 		// Take in an identifier token
+		int name = this._tokens.index();
+		int symbol = this._tokens.symbol();
 		this.accept(TokenType.Identifier);
 		
 		// Take in a {
 		this.accept(TokenType.LCurly);
 		
 		// Parse either a FieldDeclaration or MethodDeclaration
-		while (this._currentToken.getTokenType() != TokenType.RCurly) {
-			this.parseClassBody();
+		while (this.inBlock()) {
+			int members = this.mark();
+			int size = this.treeSize();
+			int entered = this._entered;
+			try {
+				this.parseClassBody();
+			} catch (SyntaxError e) {
+				this.recover(members, size, entered);
+				this.synchronize();
+			}
 		}
 		
 		// Take in a }
 		this.accept(TokenType.RCurly);
+		this.node(NodeKind.ClassDecl, name, symbol, mark);
 	}
 	
 	// FieldDeclaration ::= Visibility Access Type id;
 	// MethodDeclaration ::= Visibility Access (Type|void) id (ParameterList?) { Statement* }
 	private void parseClassBody() {
-		if (this._currentToken.getTokenType() == TokenType.Visibility) {
+		int mark = this.mark();
+		this.enter(Rule.Member);
+		if (this._currentType == TokenType.Visibility) {
+			this.leaf(NodeKind.Modifier);
 			this.accept(TokenType.Visibility);	// Visibility
 		}
 
-		if (this._currentToken.getTokenType() == TokenType.Access) {
+		if (this._currentType == TokenType.Access) {
+			this.leaf(NodeKind.Modifier);
 			this.accept(TokenType.Access);		// Access
 		}
 		
 		// Take in a type or void
-		if (this._currentToken.getTokenType() == TokenType.Void) {
+		if (this._currentType == TokenType.Void) {
+			this.leaf(NodeKind.VoidType);
 			this.accept(TokenType.Void);
 
 			// Take in an id
+			int name = this._tokens.index();
+			int symbol = this._tokens.symbol();
 			this.accept(TokenType.Identifier);
 
 			// Take in a (
 			this.accept(TokenType.LParen);
 
 			// Parse an optional Parameter List
-			if (this._currentToken.getTokenType() != TokenType.RParen) {
+			if (this._currentType != TokenType.RParen) {
 				this.parseParameterList();
 			}
 
 			// Take in a )
 			this.accept(TokenType.RParen);
 
-			// Take in a {
-			this.accept(TokenType.LCurly);
-
-			// Parse a Statement
-			while (this._currentToken.getTokenType() != TokenType.RCurly) {
-				this.parseStatement();
-			}
-
-			// Take in a }
-			this.accept(TokenType.RCurly);
+			this.parseMethodBody(name, symbol, mark);
 		} else {
 			this.parseType();
 
 			// Take in an id
+			int name = this._tokens.index();
+			int symbol = this._tokens.symbol();
 			this.accept(TokenType.Identifier);
 
 			// Take in a ';' for field declaration or continue if method declaration
-			if (this._currentToken.getTokenType() == TokenType.Semicolon) {
+			if (this._currentType == TokenType.Semicolon) {
 				this.accept(TokenType.Semicolon);
+				this.node(NodeKind.FieldDecl, name, symbol, mark);
 				return; // end of field declaration
 			}
 
-			if (this._currentToken.getTokenType() == TokenType.LParen) {
+			if (this._currentType == TokenType.LParen) {
 				// Take in a (
 				this.accept(TokenType.LParen);
 
 				// Parse an optional Parameter List
-				if (this._currentToken.getTokenType() != TokenType.RParen) {
+				if (this._currentType != TokenType.RParen) {
 					this.parseParameterList();
 				}
 
 				// Take in a )
 				this.accept(TokenType.RParen);
 
-				// Take in a {
-				this.accept(TokenType.LCurly);
-
-				// Parse a Statement
-				while (this._currentToken.getTokenType() != TokenType.RCurly) {
-					this.parseStatement();
-				}
-
-				// Take in a }
-				this.accept(TokenType.RCurly);
+				this.parseMethodBody(name, symbol, mark);
+			} else {
+				this.node(NodeKind.FieldDecl, name, symbol, mark);
 			}
 		}
 	}
 	
+	// { Statement* }, ending the MethodDecl
+	private void parseMethodBody(int name, int symbol, int mark) {
+		if (this._bodies == null) {
+			// Take in a {
+			this.accept(TokenType.LCurly);
+			
+			// Parse a Statement
+			this.parseStatements();
+			
+			// Take in a }
+			this.accept(TokenType.RCurly);
+			this.node(NodeKind.MethodDecl, name, symbol, mark);
+			return;
+		}
+		
+		// Lazily: find the matching } and jump to it, leaving what is in between
+		//  to MethodBody. The braces themselves are checked here.
+		if (this._currentType != TokenType.LCurly) {
+			this.accept(TokenType.LCurly);		// reports the missing {
+		}
+		int open = this._cursor.index();
+		int close = ClassBoundaries.blockEnd(this._cursor.getTokens(), open, this._cursor.limit());
+		this._cursor.seek(close);
+		this._currentType = this._tokens.type();
+		this.accept(TokenType.RCurly);
+		int method = this.node(NodeKind.MethodDecl, name, symbol, mark);
+		this._bodies.add(new MethodBody(this._cursor.getTokens(), name, open, close, method, this._tree != null));
+	}
+	
 	// ParameterList ::= Type id (, Type id)*
 	private void parseParameterList() {
-		this.parseType();
-		this.accept(TokenType.Identifier);
+		this.parseParameter();
 		
-		while (this._currentToken.getTokenType() != TokenType.RParen) {
+		while (this._currentType != TokenType.RParen) {
 			this.accept(TokenType.Comma);
-			this.parseType();
-			this.accept(TokenType.Identifier);
+			this.parseParameter();
 		}
 	}
 	
+	// Type id
+	private void parseParameter() {
+		int mark = this.mark();
+		this.parseType();
+		int name = this._tokens.index();
+		int symbol = this._tokens.symbol();
+		this.accept(TokenType.Identifier);
+		this.node(NodeKind.Parameter, name, symbol, mark);
+	}
+	
 	private void parseType() {
 		// Take in a Type
-		switch (this._currentToken.getTokenType()) {
+		switch (this._currentType) {
 		case IntType:
 		case Identifier:
 			// int | int[] | id | id[]
-			this.accept(this._currentToken.getTokenType());
+			this.leaf(this._currentType == TokenType.IntType ? NodeKind.IntType : NodeKind.ClassType);
+			this.accept(this._currentType);
 			this.handleArrayBrackets();
 			break;
 		case BoolType:
 			// boolean
+			this.leaf(NodeKind.BoolType);
 			this.accept(TokenType.BoolType);
 			break;
 		default:
@@ -162,8 +355,25 @@ public class Parser {
 	
 	// Handle []
 	private void handleArrayBrackets() {
-		if (this._currentToken.getTokenType() == TokenType.Brackets) {
+		if (this._currentType == TokenType.Brackets) {
+			int brackets = this._tokens.index();
 			this.accept(TokenType.Brackets);
+			this.node(NodeKind.ArrayType, brackets, this.mark() - 1);
+		}
+	}
+	
+	// Statement* up to the closing }, recovering after each bad statement
+	private void parseStatements() {
+		while (this.inBlock()) {
+			int mark = this.mark();
+			int size = this.treeSize();
+			int entered = this._entered;
+			try {
+				this.parseStatement();
+			} catch (SyntaxError e) {
+				this.recover(mark, size, entered);
+				this.synchronize();
+			}
 		}
 	}
 	
@@ -171,77 +381,96 @@ public class Parser {
 	// Reference(ArgumentList?); | return Expression?; | if (Expression) Statement (else Statement)? |
 	// while (Expression) Statement
 	private void parseStatement() {
-		switch (this._currentToken.getTokenType()) {
+		int mark = this.mark();
+		int token = this._tokens.index();
+		this.enter(Rule.Statement);
+		switch (this._currentType) {
 		case LCurly:
 			// {Statement*}
 			this.accept(TokenType.LCurly);
-			while (this._currentToken.getTokenType() != TokenType.RCurly) {
-				parseStatement();
-			}
+			this.parseStatements();
 			this.accept(TokenType.RCurly);
+			this.node(NodeKind.BlockStmt, token, mark);
 			break;
 		case IntType: case BoolType:
 			// Type id = Expression
 			this.parseType();
-			this.parseTypeAssignment();
+			this.parseTypeAssignment(mark);
 			break;
 		case This:
 			// Reference = Expression; | Reference[Expression] | Reference(ArgumentList?)
 			this.parseReference();
-			parseReferenceStatement();
+			parseReferenceStatement(mark);
 			break;
 		case Identifier:
 			// Type vs. Reference ID
+			int symbol = this._tokens.symbol();
 			this.accept(TokenType.Identifier);
-			switch (this._currentToken.getTokenType()) {
+			switch (this._currentType) {
 				case Identifier:
 					// id = Expression;
-					this.parseTypeAssignment();
+					this.leaf(NodeKind.ClassType, token, symbol);
+					this.parseTypeAssignment(mark);
 					break;
 				case Dot:
 					// Reference.id
+					this.leaf(NodeKind.IdRef, token, symbol);
 					this.parseReference();
-					switch (this._currentToken.getTokenType()) {
+					int operator = this._tokens.index();
+					switch (this._currentType) {
 						case LParen:
 							this.parseArgList();
 							this.accept(TokenType.Semicolon);
+							this.node(NodeKind.CallStmt, operator, mark);
 							break;
 						case LSqBrack:
 							this.parseArrayReference();
+							operator = this._tokens.index();
 							this.parseExpressionAssignment();
+							this.node(NodeKind.IndexedAssignStmt, operator, mark);
 							break;
 						case Assignment:
 							this.parseExpressionAssignment();
+							this.node(NodeKind.AssignStmt, operator, mark);
 							break;
 						default:
+							this.node(NodeKind.ReferenceStmt, SyntaxTree.NONE, mark);
 							break;
 					}
 					break;
 				case Brackets:
-					this.accept(TokenType.Brackets);
-					this.parseTypeAssignment();
+					this.leaf(NodeKind.ClassType, token, symbol);
+					this.handleArrayBrackets();
+					this.parseTypeAssignment(mark);
 					break;
 				case LSqBrack:
+					this.leaf(NodeKind.IdRef, token, symbol);
 					this.accept(TokenType.LSqBrack);
-					if (this._currentToken.getTokenType() != TokenType.RSqBrack) {
+					if (this._currentType != TokenType.RSqBrack) {
 						// foo[1] = Expression
 						this.parseExpression();
 						this.accept(TokenType.RSqBrack);
+						int assignment = this._tokens.index();
 						this.parseExpressionAssignment();
+						this.node(NodeKind.IndexedAssignStmt, assignment, mark);
+					} else {
+						this.node(NodeKind.ReferenceStmt, SyntaxTree.NONE, mark);
 					}
 					break;
 				default:
-					this.parseReferenceStatement();
+					this.leaf(NodeKind.IdRef, token, symbol);
+					this.parseReferenceStatement(mark);
 					break;
 			}
 			break;
 		case Return:
 			// return Expression?
 			this.accept(TokenType.Return);
-			if (this._currentToken.getTokenType() != TokenType.Semicolon) {
+			if (this._currentType != TokenType.Semicolon) {
 				this.parseExpression();
 			}
 			this.accept(TokenType.Semicolon);
+			this.node(NodeKind.ReturnStmt, token, mark);
 			break;
 		case If:
 			// if (Expression) Statement (else Statement)?
@@ -250,49 +479,60 @@ public class Parser {
 			this.parseExpression();
 			this.accept(TokenType.RParen);
 			this.parseStatement();
-			if (this._currentToken.getTokenType() == TokenType.Else) {
+			if (this._currentType == TokenType.Else) {
 				this.accept(TokenType.Else);
 				this.parseStatement();
 			}
+			this.node(NodeKind.IfStmt, token, mark);
 			break;
 		case While:
 			// while (Expression) Statement
 			this.accept(TokenType.While);
 			this.parseExpression();
 			this.parseStatement();
+			this.node(NodeKind.WhileStmt, token, mark);
 			break;
 		default:
-			this.reject(this._currentToken.getTokenType());
+			this.reject(this._currentType);
 		}
 		
 	}
 	
 	// Type id = Expression;
-	private void parseTypeAssignment() {
+	private void parseTypeAssignment(int mark) {
+		int name = this._tokens.index();
+		int symbol = this._tokens.symbol();
 		this.accept(TokenType.Identifier);
 		this.parseExpressionAssignment();
+		this.node(NodeKind.VarDeclStmt, name, symbol, mark);
 	}
 	
 	// Reference = Expression;
-	private void parseReferenceStatement() {
-		switch (this._currentToken.getTokenType()) {
+	private void parseReferenceStatement(int mark) {
+		int token = this._tokens.index();
+		switch (this._currentType) {
 		case LSqBrack:
 			// Reference[Expression]
 			this.parseArrayReference();
+			int assignment = this._tokens.index();
 			this.accept(TokenType.Assignment);
 			this.parseExpression();
 			this.accept(TokenType.Semicolon);
+			this.node(NodeKind.IndexedAssignStmt, assignment, mark);
 			break;
 		case Assignment:
 			// = Expression;
 			this.parseExpressionAssignment();
+			this.node(NodeKind.AssignStmt, token, mark);
 			break;
 		case LParen:
 			// Reference(ArgumentList?)
 			this.parseArgList();
 			this.accept(TokenType.Semicolon);
+			this.node(NodeKind.CallStmt, token, mark);
 			break;
 		default:
+			this.node(NodeKind.ReferenceStmt, SyntaxTree.NONE, mark);
 		}		
 	}
 	
@@ -306,9 +546,9 @@ public class Parser {
 	// ( ArgumentList ::= Expression (, Expression)* )
 	private void parseArgList() {
 		this.accept(TokenType.LParen);
-		if (this._currentToken.getTokenType() != TokenType.RParen) {
+		if (this._currentType != TokenType.RParen) {
 			this.parseExpression();
-			while (this._currentToken.getTokenType() == TokenType.Comma) {
+			while (this._currentType == TokenType.Comma) {
 				this.accept(TokenType.Comma);
 				this.parseExpression();
 			}
@@ -326,33 +566,63 @@ public class Parser {
 	// Expression ::= Reference | Reference[Expression] | Reference (ArgumentList?); | unop Expression 
 	// | Expression binop Expression | ( Expression ) | num | true | false 
 	// | new( id() | int[Expression] | id[Expression] ) 
+	//
+	// Operator chains are parsed in a loop by precedence climbing over an explicit
+	//  operator stack, so a long chain does not need a stack frame per operator.
+	//  Only parentheses and nested argument lists recurse.
 	private void parseExpression() {
-		switch (this._currentToken.getTokenType()) {
-		case Negation:
-			this.accept(TokenType.Negation);
-			this.parseExpression();
-			break;
+		int base = this._operatorCount;
+		this.enter(Rule.Expression);
+		while (true) {
+			// unop Expression, applied once the operand is parsed
+			while (this._currentType == TokenType.Negation || this._currentType == TokenType.UnOp) {
+				this.pushOperator(UNARY, this._tokens.index());
+				this.accept(this._currentType);
+			}
+			this.parseOperand();
+			
+			// Expression binop Expression
+			if (this._currentType != TokenType.BinOp && this._currentType != TokenType.Negation) {
+				break;
+			}
+			int precedence = this._tokens.precedence();
+			// Left associative: operators binding at least as tightly take their operands first
+			while (this._operatorCount > base && this._operators[this._operatorCount - 1] >= precedence) {
+				this.reduce();
+			}
+			this.pushOperator(precedence, this._tokens.index());
+			this.accept(this._currentType);
+		}
+		while (this._operatorCount > base) {
+			this.reduce();
+		}
+		this.exitExpression();
+	}
+	
+	// An expression without prefix or binary operators
+	private void parseOperand() {
+		int mark = this.mark();
+		int token = this._tokens.index();
+		switch (this._currentType) {
 		case Identifier:
 		case This:
 			// Reference
 			this.parseReference();
-			switch (this._currentToken.getTokenType()) {
+			token = this._tokens.index();
+			switch (this._currentType) {
 			case LSqBrack:
 				// [ Expression ]
 				this.parseArrayReference();
+				this.node(NodeKind.IndexedExpr, token, mark);
 				break;
 			case LParen:
 				// (ArgumentList?)
 				this.parseArgList();
+				this.node(NodeKind.CallExpr, token, mark);
 				break;
 			default:
 			}
 			break;
-		case UnOp:
-			// unop Expression
-			this.accept(TokenType.UnOp);
-			this.parseExpression();
-			break;
 		case LParen:
 			// ( Expression )
 			this.accept(TokenType.LParen);
@@ -361,83 +631,268 @@ public class Parser {
 			break;
 		case IntLiteral:
 			// num
+			this.leaf(NodeKind.IntLiteral);
 			this.accept(TokenType.IntLiteral);
 			break;
 		case BoolLiteral:
 			// true | false
+			this.leaf(NodeKind.BoolLiteral);
 			this.accept(TokenType.BoolLiteral);
 			break;
 		case New:
 			// new (id() | int[Expression] | id[Expression])
 			this.accept(TokenType.New);
-			switch (this._currentToken.getTokenType()) {
+			switch (this._currentType) {
 			case Identifier:
 				// id
+				int name = this._tokens.index();
+				int symbol = this._tokens.symbol();
 				this.accept(TokenType.Identifier);
-				if (this._currentToken.getTokenType() == TokenType.LParen) {
+				if (this._currentType == TokenType.LSqBrack) {
+					// id[Expression]
+					this.leaf(NodeKind.ClassType, name, symbol);
+					this.parseArrayReference();
+					this.node(NodeKind.NewArrayExpr, token, mark);
+					break;
+				}
+				if (this._currentType == TokenType.LParen) {
 					// id()
 					this.accept(TokenType.LParen);
 					this.accept(TokenType.RParen);
-				} else if (this._currentToken.getTokenType() == TokenType.LSqBrack) {
-					// id[Expression]
-					this.parseArrayReference();
 				}
+				this.leaf(NodeKind.NewObjectExpr, name, symbol);
 				break;
 			case IntType:
 				// int[Expression]
+				this.leaf(NodeKind.IntType);
 				this.accept(TokenType.IntType);
 				this.parseArrayReference();
+				this.node(NodeKind.NewArrayExpr, token, mark);
 				break;
 			default:
+				// a bare new, still one operand
+				this.leaf(NodeKind.NewObjectExpr, token, SymbolTable.NONE);
 			}
 			break;
 		default:
-			this.reject(this._currentToken.getTokenType());
+			this.reject(this._currentType);
 			break;
 		}
-		// Ensure expression parsed before Expression binop Expression
-		if (this._currentToken.getTokenType() == TokenType.BinOp || this._currentToken.getTokenType() == TokenType.Negation) {
-			this.accept(this._currentToken.getTokenType());
-			this.parseExpression();
+	}
+	
+	private void pushOperator(int precedence, int token) {
+		if (this._operatorCount == this._operators.length) {
+			this._operators = Arrays.copyOf(this._operators, this._operatorCount * 2);
+			this._operatorTokens = Arrays.copyOf(this._operatorTokens, this._operatorCount * 2);
+		}
+		this._operators[this._operatorCount] = precedence;
+		this._operatorTokens[this._operatorCount] = token;
+		this._operatorCount += 1;
+	}
+	
+	// Apply the operator on top of the stack to its operands, the last one
+	//  or two nodes built
+	private void reduce() {
+		this._operatorCount -= 1;
+		if (this._operators[this._operatorCount] == UNARY) {
+			this.node(NodeKind.UnaryExpr, this._operatorTokens[this._operatorCount], this.mark() - 1);
+		} else {
+			this.node(NodeKind.BinaryExpr, this._operatorTokens[this._operatorCount], this.mark() - 2);
 		}
 	}
 	
 	// Reference ::= id | this | Reference.id
+	//  The id may already have been taken as the first node of a statement.
 	private void parseReference() {
 		// this | id
-		switch (this._currentToken.getTokenType()) {
+		switch (this._currentType) {
 		case Identifier:
+			this.leaf(NodeKind.IdRef);
+			this.accept(this._currentType);
+			break;
 		case This:
-			this.accept(this._currentToken.getTokenType());
+			this.leaf(NodeKind.ThisRef);
+			this.accept(this._currentType);
+			break;
 		default:
 		}
 
 		// Reference.id
-		while (this._currentToken.getTokenType() == TokenType.Dot) {
+		while (this._currentType == TokenType.Dot) {
 			this.accept(TokenType.Dot);
+			int name = this._tokens.index();
+			int symbol = this._tokens.symbol();
 			this.accept(TokenType.Identifier);
+			this.node(NodeKind.QualifiedRef, name, symbol, this.mark() - 1);
 		}
 	}	
 	
+	// Tree building, a no-op unless a tree was asked for
+	
+	private int mark() {
+		return this._tree != null ? this._tree.mark() : 0;
+	}
+	
+	private int treeSize() {
+		return this._tree != null ? this._tree.size() : 0;
+	}
+	
+	// A node for the current token, built before it is accepted
+	private void leaf(NodeKind kind) {
+		this.count(kind);
+		if (this._listener != null) {
+			this.event(kind, this._tokens.index(), this._tokens.symbol());
+		}
+		if (this._tree != null) {
+			this._tree.leaf(kind, this._tokens.index(), this._tokens.symbol());
+		}
+	}
+	
+	private void leaf(NodeKind kind, int token, int symbol) {
+		this.count(kind);
+		if (this._listener != null) {
+			this.event(kind, token, symbol);
+		}
+		if (this._tree != null) {
+			this._tree.leaf(kind, token, symbol);
+		}
+	}
+	
+	private void node(NodeKind kind, int token, int mark) {
+		this.node(kind, token, SymbolTable.NONE, mark);
+	}
+	
+	// Returns the node built, or SyntaxTree.NONE if not building a tree
+	private int node(NodeKind kind, int token, int symbol, int mark) {
+		this.count(kind);
+		if (this._listener != null) {
+			this.event(kind, token, symbol);
+		}
+		if (this._tree != null) {
+			return this._tree.node(kind, token, symbol, mark);
+		}
+		return SyntaxTree.NONE;
+	}
+	
+	private void count(NodeKind kind) {
+		if (this._productions != null) {
+			this._productions[kind.ordinal()] += 1;
+		}
+	}
+	
+	// Listener events, no-ops unless a listener was set
+	
+	private void enter(Rule rule) {
+		if (this._listener == null) {
+			return;
+		}
+		this._entered += 1;
+		int token = this._tokens.index();
+		switch (rule) {
+		case Class:
+			this._listener.enterClass(token);
+			break;
+		case Member:
+			this._listener.enterMember(token);
+			break;
+		case Statement:
+			this._listener.enterStatement(token);
+			break;
+		default:
+			this._listener.enterExpression(token);
+		}
+	}
+	
+	private void exitExpression() {
+		if (this._listener != null) {
+			this._entered -= 1;
+			this._listener.exitExpression();
+		}
+	}
+	
+	// A finished node, which ends the entered rule if it is a class, member or statement
+	private void event(NodeKind kind, int token, int symbol) {
+		switch (kind) {
+		case ClassDecl:
+			this._entered -= 1;
+			this._listener.exitClass(token, symbol);
+			break;
+		case FieldDecl:
+		case MethodDecl:
+			this._entered -= 1;
+			this._listener.exitMember(kind, token, symbol);
+			break;
+		case BlockStmt: case VarDeclStmt: case AssignStmt: case IndexedAssignStmt: case CallStmt:
+		case ReferenceStmt: case ReturnStmt: case IfStmt: case WhileStmt:
+			this._entered -= 1;
+			this._listener.exitStatement(kind, token, symbol);
+			break;
+		default:
+			this._listener.node(kind, token, symbol);
+		}
+	}
+	
+	// Tell the listener the rules entered since entered was taken were cut short
+	private void abandon(int entered) {
+		if (this._listener != null && this._entered > entered) {
+			this._listener.abandon(this._entered - entered);
+			this._entered = entered;
+		}
+	}
+	
+	// After giving up, nothing in the tree is reliable
+	private void abandonTree() {
+		if (this._tree != null) {
+			this._tree.reset(0, 0);
+		}
+	}
+	
+	// A block's members or statements run until its }, or until class or eot
+	//  show the } is missing
+	private boolean inBlock() {
+		return this._currentType != TokenType.RCurly && this._currentType != TokenType.Class
+				&& this._currentType != TokenType.EOT;
+	}
+	
+	// Drop what the rules abandoned at an error left behind
+	private void recover(int mark, int size, int entered) {
+		this._operatorCount = 0;
+		if (this._tree != null) {
+			this._tree.reset(mark, size);
+		}
+		this.abandon(entered);
+	}
+	
+	// Panic mode, see ErrorRecovery.synchronize()
+	private void synchronize() {
+		this._recovery.synchronize();
+		this._currentType = this._tokens.type();
+	}
+	
 	// This method will accept the token and retrieve the next token.
 	//  Can be useful if you want to error check and accept all-in-one.
 	private void accept(TokenType expectedType) throws SyntaxError {
-		if( _currentToken.getTokenType() == expectedType ) {
-			_currentToken = _scanner.scan();
+		if( _currentType == expectedType ) {
+			_tokens.advance();
+			_currentType = _tokens.type();
+			this._recovery.accepted();
 			return;
 		}
 		
 		// Report an error here.
 		// "Expected token X, but got Y"
-		this._errors.reportError(_currentToken.getTokenPosition(), "Invalid token - expecting " + expectedType + " but found "
-				+ this._currentToken.getTokenType());
-		throw new SyntaxError();
+		this.error(DiagnosticCode.ExpectedToken, expectedType, this._currentType);
 	}
 
 	private void reject(TokenType tokType) throws SyntaxError {
 		// Report an error here.
 		// "Expected token X, but got Y"
-		this._errors.reportError(_currentToken.getTokenPosition(), "Invalid token - found " + tokType);
-		throw new SyntaxError();
+		this.error(DiagnosticCode.UnexpectedToken, tokType);
+	}
+	
+	// Report unless still recovering from the last error, then unwind
+	private void error(DiagnosticCode code, Object... args) throws SyntaxError {
+		this._recovery.error(code, args);
+		throw SyntaxError.INSTANCE;
 	}
 }
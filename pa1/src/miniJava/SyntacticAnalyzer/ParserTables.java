@@ -0,0 +1,121 @@
+package miniJava.SyntacticAnalyzer;
+
+// The miniJava grammar TableParser runs on, and the tables generated from it
+//  when the class is loaded. A conflict in the grammar fails loading with a
+//  list of them, see Grammar.build().
+//
+// The grammar accepts what Parser does, including what Parser lets through:
+//  a bare reference as a statement, a field without its ;, a while condition
+//  without parentheses and a bare new.
+final class ParserTables {
+	static final int TERMINALS = Grammar.TERMINALS;
+	static final short ERROR = Grammar.ERROR;
+	
+	// How TableParser recovers from an error inside a list
+	static final byte RESUME_AT_CLASS = 1;	// skip to the next class
+	static final byte SYNCHRONIZE = 2;		// skip past the next ; or {...}, see ErrorRecovery.synchronize()
+	
+	static final int START;
+	// See Grammar.predict() and Grammar.expand()
+	static final short[] PREDICT;
+	static final int SECOND_TABLE;		// index of the second table's first entry
+	static final int[] EXPAND_START;
+	static final int[] EXPAND;
+	static final boolean[] MATCHES;
+	static final byte[] RECOVERY;
+	
+	static {
+		Grammar g = new Grammar();
+		
+		// Program ::= (ClassDeclaration)* eot
+		g.rule("Program", "Classes EOT");
+		g.list("Classes", "ClassDecl", TokenType.EOT);
+		g.recovery("Classes", RESUME_AT_CLASS);
+		
+		// ClassDeclaration ::= class id { (FieldDeclaration|MethodDeclaration)* }
+		//  A block's members or statements run until its }, or until class or
+		//  eot show the } is missing.
+		g.rule("ClassDecl", "Class Identifier LCurly Members RCurly");
+		g.list("Members", "Member", TokenType.RCurly, TokenType.Class, TokenType.EOT);
+		g.recovery("Members", SYNCHRONIZE);
+		
+		// FieldDeclaration ::= Visibility Access Type id;
+		// MethodDeclaration ::= Visibility Access (Type|void) id (ParameterList?) { Statement* }
+		g.rule("Member", "OptVisibility OptAccess MemberDecl");
+		g.rule("OptVisibility", "Visibility", "");
+		g.rule("OptAccess", "Access", "");
+		g.rule("MemberDecl", "Void Identifier LParen Params RParen Body", "else Type Identifier MemberRest");
+		g.rule("MemberRest", "Semicolon", "LParen Params RParen Body", "");
+		g.rule("Body", "LCurly Statements RCurly");
+		
+		// ParameterList ::= Type id (, Type id)*
+		g.rule("Params", "", "else Param ParamTail");
+		g.list("ParamTail", "Comma Param", TokenType.RParen);
+		g.rule("Param", "Type Identifier");
+		
+		// Type ::= int | int[] | boolean | id | id[]
+		g.rule("Type", "IntType OptBrackets", "BoolType", "else Identifier OptBrackets");
+		g.rule("OptBrackets", "Brackets", "");
+		
+		// Statement ::= {Statement*} | Type id = Expression; | Reference = Expression; | Reference[Expression] = Expression; |
+		// Reference(ArgumentList?); | return Expression?; | if (Expression) Statement (else Statement)? |
+		// while (Expression) Statement
+		g.list("Statements", "Statement", TokenType.RCurly, TokenType.Class, TokenType.EOT);
+		g.recovery("Statements", SYNCHRONIZE);
+		g.rule("Statement",
+				"LCurly Statements RCurly",
+				"Type Identifier Assignment Expression Semicolon",
+				"Return OptExpression Semicolon",
+				"If LParen Expression RParen Statement OptElse",
+				"While Expression Statement",
+				"else Reference ReferenceStmt");
+		// id id starts a declaration, not a bare reference and the next statement
+		g.prefer("Statement", "Type Identifier Assignment Expression Semicolon", TokenType.Identifier, TokenType.Identifier);
+		g.rule("ReferenceStmt",
+				"Assignment Expression Semicolon",
+				"LSqBrack Expression RSqBrack Assignment Expression Semicolon",
+				"LParen Args RParen Semicolon",
+				"");
+		g.rule("OptExpression", "", "else Expression");
+		// An else goes with the closest if
+		g.rule("OptElse", "Else Statement", "");
+		g.prefer("OptElse", "Else Statement", TokenType.Else);
+		
+		// Reference ::= id | this | Reference.id
+		g.rule("Reference", "Identifier ReferenceTail", "This ReferenceTail");
+		g.rule("ReferenceTail", "Dot Identifier ReferenceTail", "");
+		
+		// Expression ::= Reference | Reference[Expression] | Reference (ArgumentList?); | unop Expression
+		// | Expression binop Expression | ( Expression ) | num | true | false
+		// | new( id() | int[Expression] | id[Expression] )
+		//  Only checking syntax, so operators need no precedence levels.
+		g.rule("Expression", "Unary BinaryTail");
+		g.rule("BinaryTail", "BinOp Unary BinaryTail", "Negation Unary BinaryTail", "");
+		g.rule("Unary", "Negation Unary", "UnOp Unary", "Operand");
+		g.rule("Operand",
+				"Reference OperandTail",
+				"LParen Expression RParen",
+				"IntLiteral",
+				"BoolLiteral",
+				"New NewTail");
+		g.rule("OperandTail", "LSqBrack Expression RSqBrack", "LParen Args RParen", "");
+		g.rule("Args", "", "else Expression ArgTail");
+		g.rule("ArgTail", "Comma Expression ArgTail", "");
+		g.rule("NewTail", "Identifier NewObjectTail", "IntType LSqBrack Expression RSqBrack", "");
+		// A bare new ending a while condition does not take the statement's first token
+		g.prefer("NewTail", "Identifier NewObjectTail", TokenType.Identifier);
+		g.prefer("NewTail", "IntType LSqBrack Expression RSqBrack", TokenType.IntType);
+		g.rule("NewObjectTail", "LSqBrack Expression RSqBrack", "LParen RParen", "");
+		
+		g.build("Program");
+		START = g.symbol("Program");
+		PREDICT = g.predict();
+		SECOND_TABLE = PREDICT.length;
+		EXPAND_START = g.expandStart();
+		EXPAND = g.expand();
+		MATCHES = g.matches();
+		RECOVERY = g.recoveryKinds();
+	}
+	
+	private ParserTables() { }
+}
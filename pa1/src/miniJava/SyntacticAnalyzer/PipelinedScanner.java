@@ -0,0 +1,176 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.concurrent.locks.LockSupport;
+
+import miniJava.ErrorReporter;
+
+// Runs a Scanner on its own thread, ahead of the Parser, so scanning and
+//  parsing overlap on two cores. Tokens are handed over in batches through
+//  a bounded single-producer single-consumer ring, and the scanner waits
+//  when it gets a full ring ahead. Lexical errors travel with the batch and
+//  are reported as the parser reaches their tokens, in the same order as
+//  when parsing straight from the Scanner.
+public class PipelinedScanner implements TokenStream, AutoCloseable {
+	private static final int BATCH_SIZE = 4096;
+	private static final int RING_SIZE = 8;		// a power of two
+	
+	private final Scanner _scanner;
+	private final TokenBuffer[] _ring = new TokenBuffer[RING_SIZE];
+	private final Thread _producer;
+	
+	// Batches handed over so far, and batches the parser is done with. Each
+	//  is written by one side only, and the volatile write publishes the
+	//  contents of the batches before it.
+	private volatile long _published = 0;
+	private volatile long _consumed = 0;
+	private volatile boolean _closed = false;
+	private volatile Throwable _failure;
+	
+	// Parser side: the batch being read and where in it
+	private TokenBuffer _batch;
+	private int _position = 0;
+	private int _base = 0;			// index of the batch's first token
+	private ErrorReporter _errors;	// receives lexical errors as their tokens are reached
+	private int _nextError = 0;
+	
+	public PipelinedScanner(Scanner scanner) {
+		this._scanner = scanner;
+		for (int i = 0; i < RING_SIZE; ++i) {
+			this._ring[i] = new TokenBuffer(null, scanner.getSymbols(), scanner.getLines());
+		}
+		this._producer = new Thread(this::produce, "miniJava-scanner");
+		this._producer.setDaemon(true);
+		this._producer.start();
+		this._batch = this.take(0);
+	}
+	
+	// Scanner thread
+	private void produce() {
+		try {
+			long next = 0;
+			TokenType type;
+			do {
+				// Wait for the parser to free a slot
+				for (int spins = 0; next - this._consumed >= RING_SIZE; ++spins) {
+					if (this._closed) {
+						return;
+					}
+					idle(spins);
+				}
+				TokenBuffer batch = this._ring[(int) next & (RING_SIZE - 1)];
+				batch.clear();
+				do {
+					type = this._scanner.scan(batch);
+				} while (type != TokenType.EOT && batch.size() < BATCH_SIZE);
+				next += 1;
+				this._published = next;
+			} while (type != TokenType.EOT && !this._closed);
+		} catch (RuntimeException | Error e) {
+			this._failure = e;
+		}
+	}
+	
+	// Parser thread: wait for batch number to be published
+	private TokenBuffer take(long number) {
+		for (int spins = 0; this._published <= number; ++spins) {
+			if (this._failure != null) {
+				throw new IllegalStateException("Scanner thread failed", this._failure);
+			}
+			idle(spins);
+		}
+		return this._ring[(int) number & (RING_SIZE - 1)];
+	}
+	
+	// Spin briefly, then back off to sleeping so a stalled side costs little
+	private static void idle(int spins) {
+		if (spins < 128) {
+			Thread.onSpinWait();
+		} else if (spins < 256) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(50_000);
+		}
+	}
+	
+	@Override
+	public TokenType type() {
+		return this._batch.type(this._position);
+	}
+	
+	@Override
+	public void advance() {
+		if (this.type() == TokenType.EOT) {
+			return;
+		}
+		this._position += 1;
+		if (this._position == this._batch.size()) {
+			// Done with this batch, give it back to the scanner
+			long number = this._consumed + 1;
+			this._base += this._batch.size();
+			this._consumed = number;
+			this._batch = this.take(number);
+			this._position = 0;
+			this._nextError = 0;
+		}
+		this.reportErrors();
+	}
+	
+	@Override
+	public int index() {
+		return this._base + this._position;
+	}
+	
+	@Override
+	public int symbol() {
+		return this._batch.symbol(this._position);
+	}
+	
+	@Override
+	public int precedence() {
+		TokenType type = this.type();
+		return type == TokenType.BinOp || type == TokenType.Negation ? this._batch.value(this._position) : 0;
+	}
+	
+	@Override
+	public long start() {
+		return this._batch.start(this._position);
+	}
+	
+	@Override
+	public long end() {
+		return this._batch.end(this._position);
+	}
+	
+	@Override
+	public LineMap lines() {
+		return this._scanner.getLines();
+	}
+	
+	// Report the lexical errors kept with the batches to errors as the parser
+	//  reaches their tokens, starting with the current one.
+	void replayErrors(ErrorReporter errors) {
+		this._errors = errors;
+		this.reportErrors();
+	}
+	
+	private void reportErrors() {
+		if (this._errors == null) {
+			return;
+		}
+		while (this._nextError < this._batch.errorCount() && this._batch.errorToken(this._nextError) <= this._position) {
+			this._batch.reportError(this._nextError, this._errors);
+			this._nextError += 1;
+		}
+	}
+	
+	// Stop the scanner thread if the parser finished early
+	@Override
+	public void close() {
+		this._closed = true;
+		try {
+			this._producer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -2,33 +2,110 @@ package miniJava.SyntacticAnalyzer;
 
 import java.io.IOException;
 import java.io.InputStream;
+import miniJava.Diagnostic;
+import miniJava.DiagnosticCode;
 import miniJava.ErrorReporter;
 
 public class Scanner {
-	private InputStream _in;
+	private SourceInput _source;
+	private long _offset = 0;
 	private ErrorReporter _errors;
+	private SymbolTable _symbols;
+	private LineMap _lines;
+	private TokenBuffer _buffer;	// buffer being scanned into, if any
 	private StringBuilder _currentText;
-	private char _currentChar;
+	private int _currentChar;	// a code point, NO_CHAR past the end
+	private long _charStart = 0;	// offset of _currentChar, _offset is just past it
 	private boolean eot = false;
-	private int lineNum = 1;
-	private int columnNum = 0;
+	private boolean _started = false;	// the first character is read by the first scan
+	private long _tokenStart = 0;
+	private int _tokenValue = 0;
+	
+	// Runs skipped by skipWords()
+	private static final int WHITESPACE_RUN = 0;
+	private static final int LINE_COMMENT = 1;
+	private static final int BLOCK_COMMENT = 2;
+	
+	// _currentChar at the end of the input
+	private static final int NO_CHAR = 0xFFFF;
 	
 	public Scanner( InputStream in, ErrorReporter errors ) {
-		this._in = in;
+		this(SourceInput.of(in), errors);
+	}
+	
+	public Scanner( SourceInput source, ErrorReporter errors ) {
+		this(source, errors, new SymbolTable());
+	}
+	
+	// Share one symbol table between the scanners of several sources
+	public Scanner( SourceInput source, ErrorReporter errors, SymbolTable symbols ) {
+		this(source, errors, symbols, new LineMap());
+	}
+	
+	// Record line starts into lines, which may already know some of them
+	Scanner( SourceInput source, ErrorReporter errors, SymbolTable symbols, LineMap lines ) {
+		this._source = source;
 		this._errors = errors;
+		this._symbols = symbols;
+		this._lines = lines;
 		this._currentText = new StringBuilder();
+	}
+
+	// Resume scanning at offset in the state the Scanner was in right after it
+	//  read the character there, as it was for the token that ended at offset.
+	Scanner( SourceInput source, ErrorReporter errors, SymbolTable symbols, LineMap lines, long offset ) {
+		this(source, errors, symbols, lines);
+		this._offset = offset;
+		this._started = true;
 		
-		nextChar();
+		// Anything wrong with the character was reported along with that token
+		this.read(false);
 	}
 
 	public Token scan() {
+		TokenType tokType = this.scanType();
+		return this.makeToken(tokType);
+	}
+	
+	// Scan the next token straight into the buffer without allocating a Token.
+	public TokenType scan(TokenBuffer tokens) {
+		this._buffer = tokens;
+		TokenType tokType = this.scanType();
+		tokens.add(tokType, this._tokenStart, (int) (this.currentOffset() - this._tokenStart), this._tokenValue);
+		this._currentText.setLength(0); // reset current text
+		this._buffer = null;
+		return tokType;
+	}
+	
+	// Scan the whole input into a compact token buffer, ending with EOT.
+	//  Lexical errors are kept in the buffer, see error(). Scanning stops early
+	//  once there are more errors than the ErrorReporter would take.
+	public TokenBuffer scanAll() {
+		TokenBuffer tokens = new TokenBuffer(this._source, this._symbols, this._lines);
+		int limit = this._errors.getErrorLimit();
+		while (this.scan(tokens) != TokenType.EOT) {
+			if (tokens.errorCount() >= limit) {
+				tokens.add(TokenType.EOT, this.currentOffset(), 0, 0);
+				break;
+			}
+		}
+		return tokens;
+	}
+
+	private TokenType scanType() {
 	// This function should check the current char to determine what the token could be.
+		if (!this._started) {
+			this._started = true;
+			nextChar();
+		}
+		this._tokenValue = 0;
 
 		// Consider what happens if the current char is whitespace
 		this.skipWhitespace();
 
 		// Consider what happens if there is a comment (// or /* */)
 		while (this._currentChar == '/') {
+			this._tokenStart = this.currentOffset();
 			this.nextChar();
 			if (this._currentChar == '/') {
 				this.skipInLineComment();
@@ -38,31 +115,32 @@ public class Scanner {
 				this.skipBlockComment();
 				this.skipWhitespace();
 			} else {
+				// The character after the slash is consumed with it
+				if (this._currentChar == '\n') {
+					this._lines.add(this._offset);
+				}
 				this._currentChar = '/';
 				this.takeIt();
-				return makeToken(TokenType.BinOp); // otherwise it is division
+				this._tokenValue = ScannerTables.MULTIPLICATIVE;
+				return TokenType.BinOp; // otherwise it is division
 			}
 		}
+		this._tokenStart = this.currentOffset();
 			
 		// TODO: What happens if there are no more tokens?
 		if (this.eot) {
-			return this.makeToken(TokenType.EOT);
+			return TokenType.EOT;
 		}
 		
 		// TODO: Determine what the token is. For example, if it is a number
 		//  keep calling takeIt() until _currentChar is not a number. Then
 		//  create the token via makeToken(TokenType.IntegerLiteral) and return it.
-		TokenType tokType = this.scanToken();
-		return this.makeToken(tokType);
+		return this.scanToken();
 	}
 
 	private void skipWhitespace() {
-		while (!this.eot && (this._currentChar == ' '
-				|| this._currentChar == 9
-				|| this._currentChar == 10
-				|| this._currentChar == 11
-				|| this._currentChar == 13)) {
-			this.skipIt();
+		while (!this.eot && ScannerTables.charClass(this._currentChar) == ScannerTables.WHITESPACE) {
+			this.skipRun(WHITESPACE_RUN);
 		}
 	}
 	
@@ -71,133 +149,97 @@ public class Scanner {
 			return TokenType.EOT;
 		}
 		
-		switch (this._currentChar) {
-		case'-':
+		// Operators and punctuation: run the DFA as far as it goes
+		int state = ScannerTables.transition(ScannerTables.START, this._currentChar);
+		if (state >= 0) {
 			this.takeIt();
-			return TokenType.Negation;
-		case '!':
-			this.takeIt();
-			
-			if (this._currentChar == '=') {
+			while (true) {
+				if (ScannerTables.SKIPS_WHITESPACE[state]) {
+					this.skipWhitespace();
+				}
+				int next = ScannerTables.transition(state, this._currentChar);
+				if (next < 0) {
+					break;
+				}
 				this.takeIt();
-				return TokenType.BinOp;
+				state = next;
 			}
-			return TokenType.UnOp;
-		case '=':
-			this.takeIt();
 			
-			if (this._currentChar == '=') { // ==
-				this.takeIt();
-				return TokenType.BinOp;
-			}
-			return TokenType.Assignment;
-		case '+':	case '*':
-			this.takeIt();
-			return TokenType.BinOp;
-		case '>':	
-			this.takeIt();
-			if (this._currentChar == '=') { // >=
-				this.takeIt();
-			}
-			return TokenType.BinOp;
-		case '<':
-			this.takeIt();
-			if (this._currentChar == '=') { // <=
-				this.takeIt();
-			}
-			return TokenType.BinOp;
-		case '&':
-			this.takeIt();
-			if (this._currentChar != '&') {
-				this._errors.reportError(new SourcePosition(lineNum, columnNum),"Unrecognized character '" + this._currentChar + "' in input");
-				this.takeIt();
-				return TokenType.Error;
-			}
-			this.takeIt();
-			return TokenType.BinOp;
-		case '|':
-			this.takeIt();
-			if (this._currentChar != '|') {
-				this._errors.reportError(new SourcePosition(lineNum, columnNum), "Unrecognized character '" + this._currentChar + "' in input");
-				this.takeIt();
-				return TokenType.Error;
-			}
-			this.takeIt();
-			return TokenType.BinOp;
-		case '(':
-			this.takeIt();
-			return TokenType.LParen;
-		case ')':
-			this.takeIt();
-			return TokenType.RParen;
-		case '[':
-			this.takeIt();
-			this.skipWhitespace();
-			if (this._currentChar == ']') {
+			TokenType tokType = ScannerTables.ACCEPT[state];
+			if (tokType == TokenType.Error) {
+				// & and | are only valid doubled. The character after it is
+				//  taken too, and may be a line break.
+				this.error(DiagnosticCode.UnrecognizedCharacter, this.currentOffset(), this.currentEnd(), this.currentText());
+				if (this._currentChar == '\n') {
+					this._lines.add(this._offset);
+				}
 				this.takeIt();
-				return TokenType.Brackets;
 			}
-			return TokenType.LSqBrack;
-		case ']':
-			this.takeIt();
-			return TokenType.RSqBrack;
-		case '{':
-			this.takeIt();
-			return TokenType.LCurly;
-		case '}':
-			this.takeIt();
-			return TokenType.RCurly;
-		case '.':
-			this.takeIt();
-			return TokenType.Dot;
-		case ',':
-			this.takeIt();
-			return TokenType.Comma;
-		case ';':
-			this.takeIt();
-			return TokenType.Semicolon;
-		case '0': case '1': case '2': case '3': case '4':
-		case '5': case '6': case '7': case '8': case '9': // IntLiteral
+			this._tokenValue = ScannerTables.PRECEDENCE[state];
+			return tokType;
+		}
+		
+		switch (ScannerTables.charClass(this._currentChar)) {
+		case ScannerTables.DIGIT: // IntLiteral
 			while (!this.eot && this.isDigit()) {
+				this._tokenValue = this._tokenValue * 10 + (this._currentChar - '0');
 				this.takeIt();
 			}
 			return TokenType.IntLiteral;
-		default:
-			if (this.isAlpha()) {
+		case ScannerTables.LETTER:
+			// Identifier or keyword, checked once the whole word is scanned
+			int hash = 0;
+			do {
+				hash = hash * 31 + this._currentChar;
 				this.takeIt();
-				while (this.isValidIdentifierChar()) {
-					this.takeIt();
-
-					TokenType tokType = this.currentTokType();
-
-					if (tokType != TokenType.Identifier && !this.isValidIdentifierChar()) {
-						return tokType;
-					}
-				}
-				return TokenType.Identifier;
+			} while (this.isValidIdentifierChar());
+			
+			TokenType tokType = KeywordTable.lookup(this._currentText);
+			if (tokType == TokenType.Identifier) {
+				this._tokenValue = this.intern(hash);
+			}
+			return tokType;
+		default:
+			if (this._currentChar > 127) {
+				// Only comments may have other characters
+				this.error(DiagnosticCode.NonAsciiCharacter, this.currentOffset(), this.currentEnd(), this.currentText());
 			} else {
-				this._errors.reportError(new SourcePosition(lineNum, columnNum), "Unexpected character '" + this._currentChar + "' in input");
-				this.takeIt();
-				return TokenType.Error;
+				this.error(DiagnosticCode.UnexpectedCharacter, this.currentOffset(), this.currentEnd(), this.currentText());
 			}
+			this.takeIt();
+			return TokenType.Error;
 		}
 	}
 	
-	private boolean isDigit() {
-		return this._currentChar >= '0' && this._currentChar <= '9';
+	private int intern(int hash) {
+		try {
+			return this._symbols.intern(hash, this._source, this._tokenStart, this._currentText.length());
+		} catch (IOException e) {
+			this.error(DiagnosticCode.ReadError, this._tokenStart, this.currentOffset(), e.getMessage());
+			return SymbolTable.NONE;
+		}
 	}
 	
-	private boolean isAlpha() {
-		return (this._currentChar >= 'A' && this._currentChar <= 'Z') || (this._currentChar >= 'a' && this._currentChar <= 'z');
+	public SymbolTable getSymbols() {
+		return this._symbols;
+	}
+	
+	public LineMap getLines() {
+		return this._lines;
+	}
+	
+	private boolean isDigit() {
+		return ScannerTables.charClass(this._currentChar) == ScannerTables.DIGIT;
 	}
 	
 	private boolean isValidIdentifierChar() {
-		return (this._currentChar == '_' || this.isDigit() || this.isAlpha());
+		int charClass = ScannerTables.charClass(this._currentChar);
+		return charClass == ScannerTables.LETTER || charClass == ScannerTables.DIGIT || charClass == ScannerTables.UNDERSCORE;
 	}
 
 	private void skipInLineComment() {
 		while (this._currentChar != '\n' && this._currentChar != '\r' && !this.eot) {
-			this.skipIt();
+			this.skipRun(LINE_COMMENT);
 		}
 	}
 	
@@ -212,75 +254,144 @@ public class Scanner {
 					break;
 				}
 			} else {
-				this.skipIt();
+				this.skipRun(BLOCK_COMMENT);
 			}
 		}
 		if (!terminated) {
-			this._errors.reportError(new SourcePosition(lineNum, columnNum), "Unterminated block comment");
+			this.error(DiagnosticCode.UnterminatedComment, this._tokenStart, this.currentOffset());
 		}
 	}
 	
-	private TokenType currentTokType() {
-        switch (this._currentText.toString()) {
-			case "class": return TokenType.Class;
-			case "while": return TokenType.While;
-			case "return": return TokenType.Return;
-			case "if": return TokenType.If;
-			case "else": return TokenType.Else;
-			case "public": case "private": return TokenType.Visibility;
-            case "static": return TokenType.Access;
-            case "void": return TokenType.Void;
-            case "null": return TokenType.Null;
-            case "int": return TokenType.IntType;
-            case "boolean": return TokenType.BoolType;
-            case "this": return TokenType.This;
-			case "true": case "false": return TokenType.BoolLiteral;
-            case "new": return TokenType.New;
-			default: return TokenType.Identifier;
-        }
+	// Skip _currentChar, which must not end the run, and what follows up to
+	//  the first character that does. Eight bytes are looked at a time while
+	//  the source has eight more, and only bytes with the high bit set are
+	//  decoded one by one. The line breaks passed are recorded.
+	private void skipRun(int run) {
+		if (this._currentChar == '\n') {
+			this._lines.add(this._offset);
+		}
+		long offset = this._offset;
+		try {
+			while (this._source.hasWord(offset)) {
+				long word = this._source.wordAt(offset);
+				long stops = run == WHITESPACE_RUN ? WordScan.notWhitespace(word)
+						: run == LINE_COMMENT ? WordScan.lineEnd(word) : WordScan.star(word);
+				// Non-ASCII ends a run of whitespace, but is skipped in comments
+				long nonAscii = run == WHITESPACE_RUN ? 0 : WordScan.nonAscii(word);
+				int count = WordScan.first(stops | nonAscii);
+				for (long breaks = WordScan.before(WordScan.equal(word, '\n'), count); breaks != 0; breaks &= breaks - 1) {
+					this._lines.add(offset + WordScan.first(breaks) + 1);
+				}
+				offset += count;
+				if (count < 8) {
+					if (WordScan.first(nonAscii) != count) {
+						break;
+					}
+					this._offset = offset;
+					this.decode(this._source.byteAt(offset), true);
+					offset = this._offset;
+				}
+			}
+		} catch (IOException e) {
+			// Left to read() to report
+		}
+		this._offset = offset;
+		this.nextChar();
 	}
 	
 	private void takeIt() {
-		_currentText.append(_currentChar);
+		_currentText.appendCodePoint(_currentChar);
 		nextChar();
 	}
 	
+	// Only skipped characters (whitespace and comments) can be line breaks
 	private void skipIt() {
+		if (this._currentChar == '\n') {
+			this._lines.add(this._offset);
+		}
 		nextChar();
 	}
 	
+	// When scanning into a buffer, errors are kept with the token and reported
+	//  once a Parser reaches it, in the same order as when parsing from the Scanner.
+	private void error(DiagnosticCode code, long start, long end, Object... args) {
+		Diagnostic diagnostic = new Diagnostic(code, this._lines, start, end, args);
+		if (this._buffer != null) {
+			this._buffer.addError(diagnostic);
+		} else {
+			this._errors.report(diagnostic);
+		}
+	}
+	
+	// Offset of _currentChar in the source
+	private long currentOffset() {
+		return this._charStart;
+	}
+	
+	// Offset just past _currentChar, or past the end of the input
+	private long currentEnd() {
+		return this.eot ? this._offset + 1 : this._offset;
+	}
+	
+	private String currentText() {
+		return new String(Character.toChars(this._currentChar));
+	}
+	
 	private void nextChar() {
+		this.read(true);
+	}
+	
+	// Read the character at _offset, reporting ill-formed UTF-8 if report
+	private void read(boolean report) {
+		this._charStart = this._offset;
 		try {
-			int c = _in.read();
-			_currentChar = (char)c;
+			int c = _source.byteAt(_offset);
 
-			columnNum += 1;
-
-			if (this._currentChar == 10) {
-				this.lineNum += 1;
-				this.columnNum = 0;
-			}
-			
 			// What happens if c == -1?
-			if (c == -1) {
+			if (c == SourceInput.EOT) {
+				this._currentChar = NO_CHAR;
 				this.eot = true;
-			}
-			
-			// What happens if c is not a regular ASCII character?
-			if (c > 127) {
-				throw new IOException("The character is not a regular ASCII character.");
+			} else if (c < 0x80) {
+				this._currentChar = c;
+				this._offset += 1;
+			} else {
+				this.decode(c, report);
 			}
 			
 		} catch( IOException e ) {
 			// Report an error here
-			this._errors.reportError(new SourcePosition(lineNum, columnNum), e.getMessage());
+			this.error(DiagnosticCode.ReadError, _offset, _offset, e.getMessage());
+		}
+	}
+	
+	// Read the character at _offset that starts with the non-ASCII byte lead.
+	//  Multi-byte characters are recorded in the LineMap for column numbers.
+	private void decode(int lead, boolean report) throws IOException {
+		long start = this._offset;
+		int b1 = this._source.byteAt(start + 1);
+		int b2 = this._source.byteAt(start + 2);
+		int b3 = this._source.byteAt(start + 3);
+		int length = Utf8.length(lead, b1, b2, b3);
+		if (length > 0) {
+			this._currentChar = Utf8.codePoint(lead, b1, b2, b3, length);
+		} else {
+			length = -length;
+			this._currentChar = Utf8.REPLACEMENT;
+			if (report) {
+				this.error(DiagnosticCode.MalformedCharacter, start, start + length);
+			}
+		}
+		if (length > 1) {
+			this._lines.addWide(start, length);
 		}
+		this._offset = start + length;
 	}
 	
 	private Token makeToken( TokenType tokType ) {
 		// return a new Token with the appropriate type and text
 		//  contained in 
-		Token token = new Token(tokType, this._currentText.toString(), new SourcePosition(lineNum, columnNum));
+		int symbol = tokType == TokenType.Identifier ? this._tokenValue : SymbolTable.NONE;
+		Token token = new Token(tokType, this._currentText.toString(), this._tokenStart, this.currentOffset(), this._lines, symbol);
 		this._currentText.setLength(0); // reset current text
 		return token;
 	}
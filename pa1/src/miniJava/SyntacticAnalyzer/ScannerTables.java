@@ -0,0 +1,139 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+// Lookup tables driving the Scanner: a character class for every ASCII
+//  character, and a DFA recognizing the operators and punctuation.
+final class ScannerTables {
+	// Character classes
+	static final byte OTHER = 0;
+	static final byte WHITESPACE = 1;
+	static final byte LETTER = 2;
+	static final byte DIGIT = 3;
+	static final byte UNDERSCORE = 4;
+	
+	static final byte[] CHAR_CLASS = new byte[128];
+	
+	// DFA over operator characters. TRANSITIONS[state * 128 + c] is the next
+	//  state after taking c, or -1 if the token ends before c.
+	static final int START = 0;
+	static final short[] TRANSITIONS;
+	// Token type accepted when the DFA stops in a state
+	static final TokenType[] ACCEPT;
+	// States in which whitespace is skipped before the next transition, so "[ ]" is Brackets
+	static final boolean[] SKIPS_WHITESPACE;
+	// Binding strength of the binary operator accepted in a state, 0 if it is not one
+	static final byte[] PRECEDENCE;
+	
+	// Binary operator precedences, loosest first
+	static final int OR = 1;
+	static final int AND = 2;
+	static final int EQUALITY = 3;
+	static final int RELATIONAL = 4;
+	static final int ADDITIVE = 5;
+	static final int MULTIPLICATIVE = 6;
+	
+	private static int _stateCount = 1;
+	private static short[] _transitions = new short[16 * 128];
+	private static TokenType[] _accept = new TokenType[16];
+	private static byte[] _precedence = new byte[16];
+	
+	static {
+		CHAR_CLASS[' '] = WHITESPACE;
+		CHAR_CLASS['\t'] = WHITESPACE;
+		CHAR_CLASS['\n'] = WHITESPACE;
+		CHAR_CLASS[11] = WHITESPACE;
+		CHAR_CLASS['\r'] = WHITESPACE;
+		for (char c = 'a'; c <= 'z'; ++c) {
+			CHAR_CLASS[c] = LETTER;
+		}
+		for (char c = 'A'; c <= 'Z'; ++c) {
+			CHAR_CLASS[c] = LETTER;
+		}
+		for (char c = '0'; c <= '9'; ++c) {
+			CHAR_CLASS[c] = DIGIT;
+		}
+		CHAR_CLASS['_'] = UNDERSCORE;
+		
+		Arrays.fill(_transitions, (short) -1);
+		pattern("-", TokenType.Negation, ADDITIVE);
+		pattern("!", TokenType.UnOp);
+		pattern("!=", TokenType.BinOp, EQUALITY);
+		pattern("=", TokenType.Assignment);
+		pattern("==", TokenType.BinOp, EQUALITY);
+		pattern("+", TokenType.BinOp, ADDITIVE);
+		pattern("*", TokenType.BinOp, MULTIPLICATIVE);
+		pattern(">", TokenType.BinOp, RELATIONAL);
+		pattern(">=", TokenType.BinOp, RELATIONAL);
+		pattern("<", TokenType.BinOp, RELATIONAL);
+		pattern("<=", TokenType.BinOp, RELATIONAL);
+		pattern("&", TokenType.Error);		// a lone & or | is reported by the Scanner
+		pattern("&&", TokenType.BinOp, AND);
+		pattern("|", TokenType.Error);
+		pattern("||", TokenType.BinOp, OR);
+		pattern("/", TokenType.BinOp, MULTIPLICATIVE);	// only for its precedence, comments are told apart by the Scanner
+		pattern("(", TokenType.LParen);
+		pattern(")", TokenType.RParen);
+		pattern("[", TokenType.LSqBrack);
+		pattern("[]", TokenType.Brackets);
+		pattern("]", TokenType.RSqBrack);
+		pattern("{", TokenType.LCurly);
+		pattern("}", TokenType.RCurly);
+		pattern(".", TokenType.Dot);
+		pattern(",", TokenType.Comma);
+		pattern(";", TokenType.Semicolon);
+		
+		TRANSITIONS = Arrays.copyOf(_transitions, _stateCount * 128);
+		ACCEPT = Arrays.copyOf(_accept, _stateCount);
+		PRECEDENCE = Arrays.copyOf(_precedence, _stateCount);
+		SKIPS_WHITESPACE = new boolean[_stateCount];
+		SKIPS_WHITESPACE[TRANSITIONS[START * 128 + '[']] = true;
+		_transitions = null;
+		_accept = null;
+		_precedence = null;
+	}
+	
+	private ScannerTables() { }
+	
+	private static void pattern(String text, TokenType type) {
+		pattern(text, type, 0);
+	}
+	
+	// Add the states needed to recognize text as a token of the given type
+	private static void pattern(String text, TokenType type, int precedence) {
+		int state = START;
+		for (int i = 0; i < text.length(); ++i) {
+			int index = state * 128 + text.charAt(i);
+			if (_transitions[index] < 0) {
+				if (_stateCount == _accept.length) {
+					_accept = Arrays.copyOf(_accept, _stateCount * 2);
+					_precedence = Arrays.copyOf(_precedence, _stateCount * 2);
+					_transitions = Arrays.copyOf(_transitions, _stateCount * 2 * 128);
+					Arrays.fill(_transitions, _stateCount * 128, _transitions.length, (short) -1);
+				}
+				_transitions[index] = (short) _stateCount;
+				_stateCount += 1;
+			}
+			state = _transitions[index];
+		}
+		_accept[state] = type;
+		_precedence[state] = (byte) precedence;
+	}
+	
+	static int charClass(int c) {
+		return c < 128 ? CHAR_CLASS[c] : OTHER;
+	}
+	
+	static int transition(int state, int c) {
+		return c < 128 ? TRANSITIONS[state * 128 + c] : -1;
+	}
+	
+	// Precedence of the binary operator spelled text, 0 if it is not one
+	static int precedence(CharSequence text) {
+		int state = START;
+		for (int i = 0; i < text.length() && state >= 0; ++i) {
+			state = transition(state, text.charAt(i));
+		}
+		return state >= 0 ? PRECEDENCE[state] : 0;
+	}
+}
@@ -0,0 +1,58 @@
+package miniJava.SyntacticAnalyzer;
+
+// Pulls one Token at a time from the Scanner.
+class ScannerTokenStream implements TokenStream {
+	private Scanner _scanner;
+	private Token _currentToken;
+	private int _index = 0;
+	
+	ScannerTokenStream(Scanner scanner) {
+		this._scanner = scanner;
+		this._currentToken = scanner.scan();
+	}
+	
+	@Override
+	public TokenType type() {
+		return this._currentToken.getTokenType();
+	}
+	
+	@Override
+	public void advance() {
+		this._currentToken = this._scanner.scan();
+		this._index += 1;
+	}
+	
+	@Override
+	public int index() {
+		return this._index;
+	}
+	
+	@Override
+	public int symbol() {
+		return this._currentToken.getSymbolId();
+	}
+	
+	@Override
+	public int precedence() {
+		TokenType type = this._currentToken.getTokenType();
+		if (type != TokenType.BinOp && type != TokenType.Negation) {
+			return 0;
+		}
+		return ScannerTables.precedence(this._currentToken.getTokenText());
+	}
+	
+	@Override
+	public long start() {
+		return this._currentToken.getStart();
+	}
+	
+	@Override
+	public long end() {
+		return this._currentToken.getEnd();
+	}
+	
+	@Override
+	public LineMap lines() {
+		return this._currentToken.getLines();
+	}
+}
@@ -0,0 +1,324 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+// A zip or jar archive of sources, memory-mapped like MappedSourceInput and
+//  read through its central directory. No entry is extracted: a stored entry
+//  is read in place from the mapping, and a deflated one is inflated from it
+//  a chunk at a time as the Scanner reads on.
+//
+// An entry is named like a jar URL, archive!/entry, see path().
+public class SourceArchive implements Closeable {
+	public static final String SEPARATOR = "!/";
+	
+	private static final int REGION_BITS = 30;
+	private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+	
+	// Record signatures
+	private static final long END = 0x06054b50L;
+	private static final long ZIP64_END = 0x06064b50L;
+	private static final long ZIP64_LOCATOR = 0x07064b50L;
+	private static final long CENTRAL = 0x02014b50L;
+	private static final long LOCAL = 0x04034b50L;
+	
+	// A 32-bit field with this value has its real value in the zip64 records
+	private static final long ZIP64_MARK = 0xFFFFFFFFL;
+	
+	private static final int STORED = 0;
+	private static final int DEFLATED = 8;
+	
+	private String _path;
+	private FileChannel _channel;		// for the rare entry split across two regions
+	private MappedByteBuffer[] _regions;
+	private long _length;
+	
+	// Entries in central directory order
+	private String[] _names;
+	private int[] _methods;
+	private int[] _flags;
+	private long[] _compressedSizes;
+	private long[] _sizes;
+	private long[] _headers;		// offset of each entry's local header
+	private Map<String, Integer> _index = new HashMap<String, Integer>();
+	
+	private SourceArchive(String path, FileChannel channel) throws IOException {
+		this._path = path;
+		this._channel = channel;
+		this._length = channel.size();
+		int regionCount = (int) ((this._length + REGION_MASK) >>> REGION_BITS);
+		this._regions = new MappedByteBuffer[regionCount];
+		for (int i = 0; i < regionCount; ++i) {
+			long start = (long) i << REGION_BITS;
+			this._regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_MASK + 1, this._length - start));
+		}
+		this.readCentralDirectory();
+	}
+	
+	public static SourceArchive open(String path) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+		try {
+			return new SourceArchive(path, channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	// Whether path names a zip or jar archive, going by its extension
+	public static boolean isArchive(String path) {
+		String lower = path.toLowerCase();
+		return lower.endsWith(".zip") || lower.endsWith(".jar");
+	}
+	
+	// The name an entry of archive goes by
+	public static String path(String archive, String entry) {
+		return archive + SEPARATOR + entry;
+	}
+	
+	// Where the archive's name ends in path, if path names an entry of an
+	//  archive as path() does, or -1
+	public static int separator(String path) {
+		int separator = path.indexOf(SEPARATOR);
+		return separator > 0 && isArchive(path.substring(0, separator)) ? separator : -1;
+	}
+	
+	public String getPath() {
+		return this._path;
+	}
+	
+	// Names of the entries ending in .java, in archive order
+	public List<String> sourceNames() {
+		List<String> names = new ArrayList<String>();
+		for (String name : this._names) {
+			if (name.endsWith(".java")) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+	
+	// The bytes of the entry named name. Stored entries share the archive's
+	//  mapping, which stays valid after the archive is closed.
+	public SourceInput entry(String name) throws IOException {
+		Integer found = this._index.get(name);
+		if (found == null) {
+			throw new NoSuchFileException(path(this._path, name));
+		}
+		int i = found;
+		if ((this._flags[i] & 1) != 0) {
+			throw new ZipException("Encrypted entry " + name);
+		}
+		long header = this._headers[i];
+		if (header + 30 > this._length || this.u32(header) != LOCAL) {
+			throw new ZipException("Bad local header for " + name);
+		}
+		long data = header + 30 + this.u16(header + 26) + this.u16(header + 28);
+		if (data + this._compressedSizes[i] > this._length
+				|| (this._methods[i] == STORED && this._sizes[i] != this._compressedSizes[i])) {
+			throw new ZipException("Bad size for " + name);
+		}
+		// A single mapping holds at most 2 GB
+		if (this._compressedSizes[i] > Integer.MAX_VALUE) {
+			throw new ZipException("Entry too large to read: " + name);
+		}
+		ByteBuffer bytes = this.slice(data, (int) this._compressedSizes[i]);
+		switch (this._methods[i]) {
+		case STORED:
+			return new MappedSourceInput(bytes);
+		case DEFLATED:
+			return new BufferedSourceInput(new InflatingStream(bytes), this._sizes[i]);
+		default:
+			throw new ZipException("Unsupported compression method " + this._methods[i] + " for " + name);
+		}
+	}
+	
+	@Override
+	public void close() throws IOException {
+		this._channel.close();
+	}
+	
+	private void readCentralDirectory() throws IOException {
+		// The end record is last, followed only by a comment of up to 64 KB
+		long end = this._length - 22;
+		long stop = Math.max(0, end - 0xFFFF);
+		while (end >= stop && this.u32(end) != END) {
+			end--;
+		}
+		if (end < stop) {
+			throw new ZipException("Not a zip archive: " + this._path);
+		}
+		long count = this.u16(end + 10);
+		long directory = this.u32(end + 16);
+		if ((count == 0xFFFF || directory == ZIP64_MARK) && end >= 20 && this.u32(end - 20) == ZIP64_LOCATOR) {
+			long zip64End = this.u64(end - 20 + 8);
+			if (zip64End + 56 > this._length || this.u32(zip64End) != ZIP64_END) {
+				throw new ZipException("Bad zip64 end record in " + this._path);
+			}
+			count = this.u64(zip64End + 32);
+			directory = this.u64(zip64End + 48);
+		}
+		if (count > Integer.MAX_VALUE / 2) {
+			throw new ZipException("Too many entries in " + this._path);
+		}
+		
+		int n = (int) count;
+		this._names = new String[n];
+		this._methods = new int[n];
+		this._flags = new int[n];
+		this._compressedSizes = new long[n];
+		this._sizes = new long[n];
+		this._headers = new long[n];
+		long offset = directory;
+		int entries = 0;
+		for (int i = 0; i < n; ++i) {
+			long record = offset;
+			if (offset + 46 > this._length || this.u32(offset) != CENTRAL) {
+				throw new ZipException("Bad central directory in " + this._path);
+			}
+			int nameLength = this.u16(offset + 28);
+			int extraLength = this.u16(offset + 30);
+			int commentLength = this.u16(offset + 32);
+			if (offset + 46 + nameLength + extraLength + commentLength > this._length) {
+				throw new ZipException("Bad central directory in " + this._path);
+			}
+			String name = this.string(offset + 46, nameLength);
+			long size = this.u32(offset + 24);
+			long compressedSize = this.u32(offset + 20);
+			long header = this.u32(offset + 42);
+			
+			// Zip64 extra field: the sizes and offset too large for their 32-bit fields, in that order
+			long extra = offset + 46 + nameLength;
+			long extraEnd = extra + extraLength;
+			while (extra + 4 <= extraEnd) {
+				int id = this.u16(extra);
+				long field = extra + 4;
+				if (id == 0x0001) {
+					if (size == ZIP64_MARK) {
+						size = this.u64(field);
+						field += 8;
+					}
+					if (compressedSize == ZIP64_MARK) {
+						compressedSize = this.u64(field);
+						field += 8;
+					}
+					if (header == ZIP64_MARK) {
+						header = this.u64(field);
+					}
+					break;
+				}
+				extra += 4 + this.u16(extra + 2);
+			}
+			offset = extraEnd + commentLength;
+			
+			// Directories hold nothing to compile
+			if (name.endsWith("/")) {
+				continue;
+			}
+			this._names[entries] = name;
+			this._flags[entries] = this.u16(record + 8);
+			this._methods[entries] = this.u16(record + 10);
+			this._sizes[entries] = size;
+			this._compressedSizes[entries] = compressedSize;
+			this._headers[entries] = header;
+			this._index.put(name, entries);
+			entries += 1;
+		}
+		this._names = Arrays.copyOf(this._names, entries);
+	}
+	
+	// A buffer over [start, start + size), in place unless it spans two regions
+	private ByteBuffer slice(long start, int size) throws IOException {
+		MappedByteBuffer region = this._regions.length > 0 ? this._regions[(int) (start >>> REGION_BITS)] : null;
+		int index = (int) (start & REGION_MASK);
+		if (region == null || index + size > region.limit()) {
+			return this._channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+		}
+		ByteBuffer bytes = region.duplicate();
+		bytes.position(index);
+		bytes.limit(index + size);
+		return bytes.slice();
+	}
+	
+	private int u8(long offset) {
+		return this._regions[(int) (offset >>> REGION_BITS)].get((int) (offset & REGION_MASK)) & 0xFF;
+	}
+	
+	private int u16(long offset) {
+		return this.u8(offset) | this.u8(offset + 1) << 8;
+	}
+	
+	private long u32(long offset) {
+		return this.u16(offset) | (long) this.u16(offset + 2) << 16;
+	}
+	
+	private long u64(long offset) {
+		return this.u32(offset) | this.u32(offset + 4) << 32;
+	}
+	
+	// Entry names are UTF-8, or ASCII in practice for older archives
+	private String string(long offset, int length) {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			bytes[i] = (byte) this.u8(offset + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	// Inflates a deflated entry straight from the mapping
+	private static class InflatingStream extends InputStream {
+		private Inflater _inflater = new Inflater(true);
+		
+		InflatingStream(ByteBuffer compressed) {
+			this._inflater.setInput(compressed);
+		}
+		
+		@Override
+		public int read() throws IOException {
+			byte[] one = new byte[1];
+			return this.read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+		}
+		
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			if (length == 0) {
+				return 0;
+			}
+			try {
+				int n;
+				while ((n = this._inflater.inflate(buffer, offset, length)) == 0) {
+					if (this._inflater.finished()) {
+						return -1;
+					}
+					if (this._inflater.needsInput() || this._inflater.needsDictionary()) {
+						throw new ZipException("Truncated deflated entry");
+					}
+				}
+				return n;
+			} catch (DataFormatException e) {
+				throw new ZipException(e.getMessage());
+			}
+		}
+		
+		@Override
+		public void close() {
+			this._inflater.end();
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// A source of bytes that the Scanner reads through an offset instead of
+//  pulling one character at a time from an InputStream.
+public abstract class SourceInput implements Closeable {
+	// Returned by byteAt once the offset is past the end of the input
+	public static final int EOT = -1;
+	
+	// Return the unsigned byte at the given offset, or EOT past the end.
+	public abstract int byteAt(long offset) throws IOException;
+	
+	// Total length in bytes, or -1 if it is not known up front (e.g. a stream)
+	public long length() {
+		return -1;
+	}
+	
+	// Whether wordAt(offset) can be read, i.e. the input has at least eight
+	//  bytes from offset on
+	public boolean hasWord(long offset) throws IOException {
+		long length = this.length();
+		return length >= 0 && offset + 8 <= length;
+	}
+	
+	// The eight bytes at [offset, offset + 8) in a long, the first byte in the
+	//  lowest bits, for scanning a word at a time. Only valid if hasWord(offset).
+	public long wordAt(long offset) throws IOException {
+		long word = 0;
+		for (int i = 7; i >= 0; --i) {
+			word = (word << 8) | this.byteAt(offset + i);
+		}
+		return word;
+	}
+	
+	// Decode the bytes in [start, start + length) as UTF-8 text
+	public String text(long start, int length) throws IOException {
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; ++i) {
+			bytes[i] = (byte) this.byteAt(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	// Feed every byte of the input to digest
+	public void digest(MessageDigest digest) throws IOException {
+		byte[] chunk = new byte[8192];
+		long offset = 0;
+		int count;
+		do {
+			int c;
+			count = 0;
+			while (count < chunk.length && (c = this.byteAt(offset + count)) != EOT) {
+				chunk[count++] = (byte) c;
+			}
+			digest.update(chunk, 0, count);
+			offset += count;
+		} while (count == chunk.length);
+	}
+	
+	@Override
+	public void close() throws IOException { }
+	
+	// Files are memory-mapped, streams are read in chunks. An archive!/entry
+	//  path opens the entry of a zip or jar archive, see SourceArchive.
+	public static SourceInput open(String filePath) throws IOException {
+		int separator = SourceArchive.separator(filePath);
+		if (separator >= 0) {
+			try (SourceArchive archive = SourceArchive.open(filePath.substring(0, separator))) {
+				return archive.entry(filePath.substring(separator + SourceArchive.SEPARATOR.length()));
+			}
+		}
+		Path path = Paths.get(filePath);
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new MappedSourceInput(channel);
+		}
+	}
+	
+	public static SourceInput of(InputStream in) {
+		return new BufferedSourceInput(in);
+	}
+}
@@ -9,6 +9,14 @@ public class SourcePosition {
         this._columnNumber = columnNumber;
     }
 
+    public int getLine() {
+        return this._lineNumber;
+    }
+
+    public int getColumn() {
+        return this._columnNumber;
+    }
+
     public String toString() {
         // Return the token text
         return "Line " + this._lineNumber + " Column " + this._columnNumber;
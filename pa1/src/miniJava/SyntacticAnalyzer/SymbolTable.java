@@ -0,0 +1,141 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+// Interns identifiers into dense int IDs. Names are copied once into a shared
+//  byte pool, and lookups probe an open-addressing table of IDs, so finding
+//  an existing identifier does not allocate anything.
+public class SymbolTable {
+	// Symbol ID of tokens that are not identifiers
+	public static final int NONE = -1;
+	
+	private byte[] _bytes = new byte[4096];
+	private int _bytesUsed = 0;
+	private int[] _starts = new int[256];
+	private int[] _lengths = new int[256];
+	private int[] _hashes = new int[256];
+	private int _count = 0;
+	
+	// Slot holds symbol ID + 1, or 0 when empty
+	private int[] _slots = new int[512];
+	private int _mask = 511;
+	
+	public int size() {
+		return this._count;
+	}
+	
+	// Intern a name given as a String. The hash matches String.hashCode().
+	public int intern(String name) {
+		int hash = name.hashCode();
+		int length = name.length();
+		int slot = mix(hash) & this._mask;
+		while (this._slots[slot] != 0) {
+			int id = this._slots[slot] - 1;
+			if (this._hashes[id] == hash && this._lengths[id] == length && this.equals(id, name)) {
+				return id;
+			}
+			slot = (slot + 1) & this._mask;
+		}
+		
+		int id = this.add(hash, length, slot);
+		for (int i = 0; i < length; ++i) {
+			this._bytes[this._starts[id] + i] = (byte) name.charAt(i);
+		}
+		return id;
+	}
+	
+	// Intern the identifier at [start, start + length) in the source. The hash
+	//  is computed by the Scanner while it reads the identifier (hash * 31 + c).
+	int intern(int hash, SourceInput source, long start, int length) throws IOException {
+		int slot = mix(hash) & this._mask;
+		while (this._slots[slot] != 0) {
+			int id = this._slots[slot] - 1;
+			if (this._hashes[id] == hash && this._lengths[id] == length && this.equals(id, source, start)) {
+				return id;
+			}
+			slot = (slot + 1) & this._mask;
+		}
+		
+		int id = this.add(hash, length, slot);
+		for (int i = 0; i < length; ++i) {
+			this._bytes[this._starts[id] + i] = (byte) source.byteAt(start + i);
+		}
+		return id;
+	}
+	
+	public String name(int id) {
+		char[] chars = new char[this._lengths[id]];
+		for (int i = 0; i < chars.length; ++i) {
+			chars[i] = (char) (this._bytes[this._starts[id] + i] & 0xFF);
+		}
+		return new String(chars);
+	}
+	
+	public int length(int id) {
+		return this._lengths[id];
+	}
+	
+	private boolean equals(int id, String name) {
+		int start = this._starts[id];
+		for (int i = 0; i < name.length(); ++i) {
+			if ((this._bytes[start + i] & 0xFF) != name.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private boolean equals(int id, SourceInput source, long offset) throws IOException {
+		int start = this._starts[id];
+		for (int i = 0; i < this._lengths[id]; ++i) {
+			if ((this._bytes[start + i] & 0xFF) != source.byteAt(offset + i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	// Record a new symbol in the given empty slot and reserve room for its bytes
+	private int add(int hash, int length, int slot) {
+		if (this._count == this._starts.length) {
+			int capacity = this._count * 2;
+			this._starts = Arrays.copyOf(this._starts, capacity);
+			this._lengths = Arrays.copyOf(this._lengths, capacity);
+			this._hashes = Arrays.copyOf(this._hashes, capacity);
+		}
+		if (this._bytesUsed + length > this._bytes.length) {
+			this._bytes = Arrays.copyOf(this._bytes, Math.max(this._bytes.length * 2, this._bytesUsed + length));
+		}
+		
+		int id = this._count;
+		this._starts[id] = this._bytesUsed;
+		this._lengths[id] = length;
+		this._hashes[id] = hash;
+		this._bytesUsed += length;
+		this._count += 1;
+		this._slots[slot] = id + 1;
+		
+		// Keep the table at most half full
+		if (this._count * 2 > this._slots.length) {
+			this.rehash();
+		}
+		return id;
+	}
+	
+	private void rehash() {
+		this._slots = new int[this._slots.length * 2];
+		this._mask = this._slots.length - 1;
+		for (int id = 0; id < this._count; ++id) {
+			int slot = mix(this._hashes[id]) & this._mask;
+			while (this._slots[slot] != 0) {
+				slot = (slot + 1) & this._mask;
+			}
+			this._slots[slot] = id + 1;
+		}
+	}
+	
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,102 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+
+import miniJava.DiagnosticCode;
+import miniJava.ErrorReporter;
+
+// Checks syntax like Parser, but driven by the tables in ParserTables: the
+//  symbols still to match are kept on an explicit stack, and what a
+//  nonterminal expands to is looked up by the current token, or by the next
+//  one too where the grammar needs two tokens of lookahead.
+//
+// Errors are reported and recovered from as Parser does, by the same
+//  ErrorRecovery. The lists marked in the grammar are the recovery points:
+//  after an error the stack is cut back to the innermost list being parsed,
+//  and tokens are skipped from there. Builds no tree.
+public class TableParser {
+	private static final int TERMINALS = ParserTables.TERMINALS;
+	private static final TokenType[] TYPES = TokenType.values();
+	
+	private TokenCursor _tokens;
+	private ErrorRecovery _recovery;
+	private int[] _stack = new int[64];
+	
+	// Lexical errors kept in the buffer are reported as their tokens are reached
+	public TableParser( TokenCursor cursor, ErrorReporter errors ) {
+		this._tokens = cursor;
+		this._recovery = new ErrorRecovery(cursor, errors);
+		cursor.replayErrors(errors);
+	}
+	
+	public void parse() {
+		int[] stack = this._stack;
+		int top = 0;
+		stack[top++] = ParserTables.START;
+		int current = this._tokens.type().ordinal();
+		while (top > 0) {
+			int symbol = stack[--top];
+			if (symbol < 0) {
+				symbol = ~symbol;
+			}
+			
+			if (symbol >= TERMINALS) {
+				int entry = (symbol - TERMINALS) * TERMINALS + current;
+				int production = ParserTables.PREDICT[entry];
+				if (production == ParserTables.ERROR) {
+					this._recovery.error(DiagnosticCode.UnexpectedToken, TYPES[current]);
+					top = this.recover(stack, top);
+					current = this._tokens.type().ordinal();
+					continue;
+				}
+				if (production < -1) {
+					entry = ParserTables.SECOND_TABLE + (-2 - production) * TERMINALS + this._tokens.nextType().ordinal();
+				}
+				
+				// Push the expansion, its first symbol last
+				int from = ParserTables.EXPAND_START[entry];
+				int to = ParserTables.EXPAND_START[entry + 1];
+				if (top + to - from > stack.length) {
+					stack = this._stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + to - from));
+				}
+				for (int i = from; i < to; ++i) {
+					stack[top++] = ParserTables.EXPAND[i];
+				}
+				if (!ParserTables.MATCHES[entry]) {
+					continue;
+				}
+			} else if (symbol != current) {
+				this._recovery.error(DiagnosticCode.ExpectedToken, TYPES[symbol], TYPES[current]);
+				top = this.recover(stack, top);
+				current = this._tokens.type().ordinal();
+				continue;
+			}
+			
+			// Accept the current token
+			this._tokens.advance();
+			current = this._tokens.type().ordinal();
+			this._recovery.accepted();
+		}
+	}
+	
+	// Cut the stack back to the innermost list being parsed and skip to where
+	//  it can go on. Returns the new stack size, 0 to give up.
+	private int recover(int[] stack, int top) {
+		while (top > 0 && stack[top - 1] >= 0) {
+			top--;
+		}
+		if (top == 0) {
+			return 0;
+		}
+		switch (ParserTables.RECOVERY[~stack[top - 1] - TERMINALS]) {
+		case ParserTables.RESUME_AT_CLASS:
+			this._recovery.skipToClass();
+			break;
+		case ParserTables.SYNCHRONIZE:
+			this._recovery.synchronize();
+			break;
+		default:
+		}
+		return top;
+	}
+}
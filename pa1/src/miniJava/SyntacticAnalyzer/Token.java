@@ -1,17 +1,25 @@
 package miniJava.SyntacticAnalyzer;
 
-import javax.xml.transform.Source;
-
 public class Token {
 	private TokenType _type;
 	private String _text;
-	private SourcePosition _position;
+	private long _start;
+	private long _end;
+	private LineMap _lines;
+	private int _symbol;
+	
+	public Token(TokenType type, String text, long start, long end, LineMap lines) {
+		this(type, text, start, end, lines, SymbolTable.NONE);
+	}
 	
-	public Token(TokenType type, String text, SourcePosition position) {
+	public Token(TokenType type, String text, long start, long end, LineMap lines, int symbol) {
 		// Store the token's type and text
 		this._type = type;
 		this._text = text;
-		this._position = position;
+		this._start = start;
+		this._end = end;
+		this._lines = lines;
+		this._symbol = symbol;
 	}
 	
 	public TokenType getTokenType() {
@@ -23,8 +31,28 @@ public class Token {
 		// Return the token text
 		return _text;
 	}
+	
+	// Offset of the token's first byte
+	public long getStart() {
+		return _start;
+	}
+	
+	// Offset just past the token
+	public long getEnd() {
+		return _end;
+	}
+	
+	public LineMap getLines() {
+		return _lines;
+	}
 
+	// Position of the token's first character, looked up when asked for
 	public SourcePosition getTokenPosition() {
-		return _position;
+		return _lines.position(_start);
+	}
+	
+	// Interned ID of an Identifier, or SymbolTable.NONE for other tokens
+	public int getSymbolId() {
+		return _symbol;
 	}
 }
@@ -0,0 +1,300 @@
+package miniJava.SyntacticAnalyzer;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import miniJava.Diagnostic;
+import miniJava.ErrorReporter;
+
+// A compact token stream. Instead of one Token object per token, each
+//  attribute is kept in its own primitive array indexed by token number.
+//  Token objects are only created when a caller asks for one.
+public class TokenBuffer {
+	private static final TokenType[] TYPES = TokenType.values();
+	private static final int INITIAL_CAPACITY = 1024;
+	
+	private SourceInput _source;
+	private SymbolTable _symbols;
+	private byte[] _types;
+	private long[] _starts;
+	private int[] _lengths;		// bytes consumed, up to the character that ended the token
+	private LineMap _lines;		// where the lines of the source start, for line() and column()
+	private int[] _values;		// value of an IntLiteral, symbol ID of an Identifier, precedence of an operator
+	private int _size = 0;
+	
+	// Lexical errors, kept with the token that was being scanned when they occurred
+	private int[] _errorTokens = new int[0];
+	private Diagnostic[] _errorDiagnostics = new Diagnostic[0];
+	private int _errorCount = 0;
+	
+	public TokenBuffer(SourceInput source, SymbolTable symbols, LineMap lines) {
+		this._source = source;
+		this._symbols = symbols;
+		this._lines = lines;
+		this._types = new byte[INITIAL_CAPACITY];
+		this._starts = new long[INITIAL_CAPACITY];
+		this._lengths = new int[INITIAL_CAPACITY];
+		this._values = new int[INITIAL_CAPACITY];
+	}
+	
+	public void add(TokenType type, long start, int length, int value) {
+		if (this._size == this._types.length) {
+			this.grow(this._size + 1);
+		}
+		this._types[this._size] = (byte) type.ordinal();
+		this._starts[this._size] = start;
+		this._lengths[this._size] = length;
+		this._values[this._size] = value;
+		this._size += 1;
+	}
+	
+	// Record a lexical error against the token currently being scanned
+	void addError(Diagnostic diagnostic) {
+		if (this._errorCount == this._errorTokens.length) {
+			int capacity = Math.max(8, this._errorCount * 2);
+			this._errorTokens = Arrays.copyOf(this._errorTokens, capacity);
+			this._errorDiagnostics = Arrays.copyOf(this._errorDiagnostics, capacity);
+		}
+		this._errorTokens[this._errorCount] = this._size;
+		this._errorDiagnostics[this._errorCount] = diagnostic;
+		this._errorCount += 1;
+	}
+	
+	// Empty the buffer, keeping its arrays for the next tokens
+	void clear() {
+		Arrays.fill(this._errorDiagnostics, 0, this._errorCount, null);
+		this._size = 0;
+		this._errorCount = 0;
+	}
+	
+	private void grow(int minCapacity) {
+		int capacity = Math.max(this._types.length * 2, minCapacity);
+		this._types = Arrays.copyOf(this._types, capacity);
+		this._starts = Arrays.copyOf(this._starts, capacity);
+		this._lengths = Arrays.copyOf(this._lengths, capacity);
+		this._values = Arrays.copyOf(this._values, capacity);
+	}
+	
+	public int size() {
+		return this._size;
+	}
+	
+	public SourceInput getSource() {
+		return this._source;
+	}
+	
+	public SymbolTable getSymbols() {
+		return this._symbols;
+	}
+	
+	public LineMap getLines() {
+		return this._lines;
+	}
+	
+	public TokenType type(int index) {
+		return TYPES[this._types[index]];
+	}
+	
+	public long start(int index) {
+		return this._starts[index];
+	}
+	
+	public int length(int index) {
+		return this._lengths[index];
+	}
+	
+	// Offset of the character following the token, where scanning resumes
+	public long end(int index) {
+		return this._starts[index] + this._lengths[index];
+	}
+	
+	// Line and column of the token's first character
+	public int line(int index) {
+		return this._lines.line(this._starts[index]);
+	}
+	
+	public int column(int index) {
+		return this._lines.column(this._starts[index]);
+	}
+	
+	public int value(int index) {
+		return this._values[index];
+	}
+	
+	public int symbol(int index) {
+		return this.type(index) == TokenType.Identifier ? this._values[index] : SymbolTable.NONE;
+	}
+	
+	public SourcePosition position(int index) {
+		return this._lines.position(this._starts[index]);
+	}
+	
+	public String text(int index) {
+		switch (this.type(index)) {
+		case Brackets:
+			// [] may have whitespace between the brackets in the source
+			return "[]";
+		case LSqBrack:
+			// the whitespace looked at for [] is consumed
+			return "[";
+		case EOT:
+			return "";
+		case BinOp:
+			// Division consumes the character after the slash
+			if (this._lengths[index] > 1 && this.firstByte(index) == '/') {
+				return "/";
+			}
+			break;
+		default:
+		}
+		try {
+			return this._source.text(this._starts[index], this._lengths[index]);
+		} catch (IOException e) {
+			return "";
+		}
+	}
+	
+	private int firstByte(int index) {
+		try {
+			return this._source.byteAt(this._starts[index]);
+		} catch (IOException e) {
+			return SourceInput.EOT;
+		}
+	}
+	
+	// Materialize a Token object for the given index.
+	public Token token(int index) {
+		return new Token(this.type(index), this.text(index), this._starts[index], this.end(index), this._lines, this.symbol(index));
+	}
+	
+	public TokenCursor cursor() {
+		return new TokenCursor(this, 0, this._size);
+	}
+	
+	int errorCount() {
+		return this._errorCount;
+	}
+	
+	int errorToken(int error) {
+		return this._errorTokens[error];
+	}
+	
+	void reportError(int error, ErrorReporter errors) {
+		errors.report(this._errorDiagnostics[error]);
+	}
+	
+	// Index of the first error recorded at or after the given token
+	int firstError(int token) {
+		int lo = 0;
+		int hi = this._errorCount;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this._errorTokens[mid] < token) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+	
+	// Report the lexical errors of tokens in [from, to) in scanning order
+	public void reportErrors(int from, int to, ErrorReporter errors) {
+		for (int i = this.firstError(from); i < this._errorCount && this._errorTokens[i] < to; ++i) {
+			this.reportError(i, errors);
+		}
+	}
+	
+	// Index of the last token starting before offset, or -1 if there is none
+	int lastStartingBefore(long offset) {
+		int lo = 0;
+		int hi = this._size - 1;
+		int found = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (this._starts[mid] < offset) {
+				found = mid;
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return found;
+	}
+	
+	// Index of the token ending exactly at offset, or -1 if there is none
+	int endingAt(long offset) {
+		int lo = 0;
+		int hi = this._size - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			long end = this.end(mid);
+			if (end == offset) {
+				return mid;
+			} else if (end < offset) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return -1;
+	}
+	
+	// Replace tokens [from, to) with all tokens of replacement. Tokens after the
+	//  replaced range move by offsetDelta bytes; the source and its lines become
+	//  the ones the replacement was scanned from.
+	void splice(int from, int to, TokenBuffer replacement, long offsetDelta) {
+		int inserted = replacement._size;
+		int tail = this._size - to;
+		int newSize = from + inserted + tail;
+		if (newSize > this._types.length) {
+			this.grow(newSize);
+		}
+		
+		int dst = from + inserted;
+		System.arraycopy(this._types, to, this._types, dst, tail);
+		System.arraycopy(this._starts, to, this._starts, dst, tail);
+		System.arraycopy(this._lengths, to, this._lengths, dst, tail);
+		System.arraycopy(this._values, to, this._values, dst, tail);
+		for (int i = dst; i < newSize; ++i) {
+			this._starts[i] += offsetDelta;
+		}
+		
+		System.arraycopy(replacement._types, 0, this._types, from, inserted);
+		System.arraycopy(replacement._starts, 0, this._starts, from, inserted);
+		System.arraycopy(replacement._lengths, 0, this._lengths, from, inserted);
+		System.arraycopy(replacement._values, 0, this._values, from, inserted);
+		this._size = newSize;
+		this._source = replacement._source;
+		this._lines = replacement._lines;
+		
+		this.spliceErrors(from, to, replacement, dst - to, offsetDelta);
+	}
+	
+	private void spliceErrors(int from, int to, TokenBuffer replacement, int indexDelta, long offsetDelta) {
+		int count = 0;
+		int capacity = this._errorCount + replacement._errorCount;
+		int[] tokens = new int[capacity];
+		Diagnostic[] diagnostics = new Diagnostic[capacity];
+		
+		for (int i = 0; i < this._errorCount && this._errorTokens[i] < from; ++i, ++count) {
+			tokens[count] = this._errorTokens[i];
+			diagnostics[count] = this._errorDiagnostics[i];
+		}
+		for (int i = 0; i < replacement._errorCount; ++i, ++count) {
+			tokens[count] = replacement._errorTokens[i] + from;
+			diagnostics[count] = replacement._errorDiagnostics[i];
+		}
+		for (int i = 0; i < this._errorCount; ++i) {
+			if (this._errorTokens[i] >= to) {
+				tokens[count] = this._errorTokens[i] + indexDelta;
+				diagnostics[count] = this._errorDiagnostics[i].moved(offsetDelta);
+				count += 1;
+			}
+		}
+		
+		this._errorTokens = tokens;
+		this._errorDiagnostics = diagnostics;
+		this._errorCount = count;
+	}
+}
@@ -0,0 +1,118 @@
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.ErrorReporter;
+
+// Walks a TokenBuffer by index. Reading past the end of the range yields EOT,
+//  so a cursor over part of a buffer can be parsed like a whole program.
+public class TokenCursor implements TokenStream {
+	private TokenBuffer _tokens;
+	private int _index;
+	private int _limit;
+	private ErrorReporter _errors;	// receives lexical errors as their tokens are reached
+	private int _nextError;
+	private int _errorsTo;			// tokens from here on have their errors reported elsewhere
+	
+	public TokenCursor(TokenBuffer tokens, int from, int limit) {
+		this._tokens = tokens;
+		this._index = from;
+		this._limit = limit;
+	}
+	
+	public TokenBuffer getTokens() {
+		return this._tokens;
+	}
+	
+	@Override
+	public int index() {
+		return this._index;
+	}
+	
+	public int limit() {
+		return this._limit;
+	}
+	
+	@Override
+	public TokenType type() {
+		return this._index < this._limit ? this._tokens.type(this._index) : TokenType.EOT;
+	}
+	
+	// Type of the token after the current one
+	TokenType nextType() {
+		return this._index + 1 < this._limit ? this._tokens.type(this._index + 1) : TokenType.EOT;
+	}
+	
+	@Override
+	public void advance() {
+		if (this._index < this._limit) {
+			this._index += 1;
+			this.reportErrors();
+		}
+	}
+	
+	@Override
+	public int symbol() {
+		return this._index < this._limit ? this._tokens.symbol(this._index) : SymbolTable.NONE;
+	}
+	
+	@Override
+	public int precedence() {
+		TokenType type = this.type();
+		return type == TokenType.BinOp || type == TokenType.Negation ? this._tokens.value(this._index) : 0;
+	}
+	
+	// Report the lexical errors kept in the buffer to errors as the cursor
+	//  reaches their tokens, starting with the current one.
+	void replayErrors(ErrorReporter errors) {
+		this.replayErrors(errors, this._index, this._limit);
+	}
+	
+	// As above, but only for the tokens in [from, to)
+	void replayErrors(ErrorReporter errors, int from, int to) {
+		this._errors = errors;
+		this._nextError = this._tokens.firstError(Math.max(from, this._index));
+		this._errorsTo = to;
+		this.reportErrors();
+	}
+	
+	// Jump ahead to index. Lexical errors of the tokens passed over are not reported.
+	void seek(int index) {
+		this._index = Math.min(index, this._limit);
+		if (this._errors != null) {
+			this._nextError = this._tokens.firstError(this._index);
+			this.reportErrors();
+		}
+	}
+	
+	private void reportErrors() {
+		if (this._errors == null || this._index >= this._limit) {
+			return;
+		}
+		while (this._nextError < this._tokens.errorCount() && this._tokens.errorToken(this._nextError) <= this._index
+				&& this._tokens.errorToken(this._nextError) < this._errorsTo) {
+			this._tokens.reportError(this._nextError, this._errors);
+			this._nextError += 1;
+		}
+	}
+	
+	// Past the end of the range, errors are reported at the last token in the range
+	@Override
+	public long start() {
+		int index = Math.min(this._index, this._limit - 1);
+		return index < 0 ? 0 : this._tokens.start(index);
+	}
+	
+	@Override
+	public long end() {
+		int index = Math.min(this._index, this._limit - 1);
+		return index < 0 ? 0 : this._tokens.end(index);
+	}
+	
+	@Override
+	public LineMap lines() {
+		return this._tokens.getLines();
+	}
+	
+	public Token token() {
+		return this._tokens.token(this._index);
+	}
+}
@@ -0,0 +1,28 @@
+package miniJava.SyntacticAnalyzer;
+
+// The Parser reads tokens through this interface, either straight from
+//  the Scanner or from a TokenBuffer that was scanned ahead of time.
+interface TokenStream {
+	// Type of the current token
+	TokenType type();
+	
+	// Move to the next token
+	void advance();
+	
+	// Index of the current token, counting from the start of the stream
+	int index();
+	
+	// Symbol ID of the current token if it is an Identifier, otherwise SymbolTable.NONE
+	int symbol();
+	
+	// Precedence of the current token as a binary operator, 0 if it is not one
+	int precedence();
+	
+	// Offsets of the current token and the lines they are in, only needed
+	//  when reporting an error
+	long start();
+	
+	long end();
+	
+	LineMap lines();
+}
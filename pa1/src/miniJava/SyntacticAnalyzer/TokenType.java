@@ -14,11 +14,11 @@ package miniJava.SyntacticAnalyzer;
 //   and then in a later assignment, we can peek at the Token's underlying text
 //   to differentiate between them.
 public enum TokenType {
-	Class,			// class
-	While,			// while
-	Return,			// return
-	If,				// if
-	Else,			// else
+	Class("class"),			// class
+	While("while"),			// while
+	Return("return"),		// return
+	If("if"),				// if
+	Else("else"),			// else
 	Negation,		// -
 	UnOp,			// !
 	BinOp,			// +, *, /, >, <, ==, <=, >=, !=, &&, ||
@@ -32,18 +32,29 @@ public enum TokenType {
 	Dot,			// .
 	Assignment,		// =
 	Comma,			// ,
-	Visibility,		// public, private
-	Access,			// static
-	Void, 			// void
-	Null,			// null
-	IntType,		// int
-	BoolType,		// boolean
-	This,		// this
+	Visibility("public", "private"),		// public, private
+	Access("static"),		// static
+	Void("void"), 		// void
+	Null("null"),			// null
+	IntType("int"),		// int
+	BoolType("boolean"),	// boolean
+	This("this"),		// this
 	Semicolon,		// ;
-	BoolLiteral,	// true, false
+	BoolLiteral("true", "false"),	// true, false
 	IntLiteral,		// num
-	New,			// new
+	New("new"),			// new
 	EOT,			// eot
 	Error,
-	Identifier
+	Identifier;
+	
+	// Reserved words spelling this token type, if any
+	private final String[] _keywords;
+	
+	TokenType(String... keywords) {
+		this._keywords = keywords;
+	}
+	
+	public String[] getKeywords() {
+		return this._keywords.clone();
+	}
 }
@@ -0,0 +1,70 @@
+package miniJava.SyntacticAnalyzer;
+
+// UTF-8 decoding for the Scanner and LineMap. Ill-formed bytes are split
+//  into maximal subparts as the Unicode standard recommends (section 3.9),
+//  each of which stands for one replacement character, so a broken sequence
+//  never swallows a well-formed character after it.
+final class Utf8 {
+	static final int REPLACEMENT = 0xFFFD;
+	
+	private Utf8() { }
+	
+	// Bytes taken by the character starting with the non-ASCII byte b0,
+	//  followed by b1, b2 and b3 (EOT past the end of the input): its length
+	//  if it is well-formed, or minus the length of the ill-formed part.
+	static int length(int b0, int b1, int b2, int b3) {
+		int length;
+		int low = 0x80;
+		int high = 0xBF;
+		if (b0 >= 0xC2 && b0 <= 0xDF) {
+			length = 2;
+		} else if (b0 >= 0xE0 && b0 <= 0xEF) {
+			// No overlong forms and no surrogates
+			length = 3;
+			if (b0 == 0xE0) {
+				low = 0xA0;
+			} else if (b0 == 0xED) {
+				high = 0x9F;
+			}
+		} else if (b0 >= 0xF0 && b0 <= 0xF4) {
+			// No overlong forms and nothing above U+10FFFF
+			length = 4;
+			if (b0 == 0xF0) {
+				low = 0x90;
+			} else if (b0 == 0xF4) {
+				high = 0x8F;
+			}
+		} else {
+			return -1;
+		}
+		
+		if (b1 < low || b1 > high) {
+			return -1;
+		}
+		if (length == 2) {
+			return 2;
+		}
+		if (b2 < 0x80 || b2 > 0xBF) {
+			return -2;
+		}
+		if (length == 3) {
+			return 3;
+		}
+		if (b3 < 0x80 || b3 > 0xBF) {
+			return -3;
+		}
+		return 4;
+	}
+	
+	// Code point of a well-formed character of the given length
+	static int codePoint(int b0, int b1, int b2, int b3, int length) {
+		switch (length) {
+		case 2:
+			return (b0 & 0x1F) << 6 | (b1 & 0x3F);
+		case 3:
+			return (b0 & 0x0F) << 12 | (b1 & 0x3F) << 6 | (b2 & 0x3F);
+		default:
+			return (b0 & 0x07) << 18 | (b1 & 0x3F) << 12 | (b2 & 0x3F) << 6 | (b3 & 0x3F);
+		}
+	}
+}
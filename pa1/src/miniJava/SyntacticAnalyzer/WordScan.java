@@ -0,0 +1,49 @@
+package miniJava.SyntacticAnalyzer;
+
+// Byte searches eight bytes at a time, on words read by SourceInput.wordAt().
+//  The first byte of a word is in its lowest bits. A mask has the high bit set
+//  in every byte that matches, so the first match is found by counting zeros.
+final class WordScan {
+	private static final long ONES = 0x0101010101010101L;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+	
+	private WordScan() { }
+	
+	// Bytes of word equal to b. Exact for every byte, not just the first match.
+	static long equal(long word, int b) {
+		long x = word ^ (ONES * b);
+		return ~(((x & LOWS) + LOWS) | x | LOWS);
+	}
+	
+	// Bytes that are part of a multi-byte character, or ill-formed
+	static long nonAscii(long word) {
+		return word & HIGHS;
+	}
+	
+	// Bytes that are not whitespace, see ScannerTables.CHAR_CLASS
+	static long notWhitespace(long word) {
+		long whitespace = equal(word, ' ') | equal(word, '\t') | equal(word, '\n') | equal(word, 11) | equal(word, '\r');
+		return ~whitespace & HIGHS;
+	}
+	
+	// Bytes that end an in-line comment
+	static long lineEnd(long word) {
+		return equal(word, '\n') | equal(word, '\r');
+	}
+	
+	// Bytes that may end a block comment
+	static long star(long word) {
+		return equal(word, '*');
+	}
+	
+	// Index of the first byte in mask, 8 if there is none
+	static int first(long mask) {
+		return Long.numberOfTrailingZeros(mask) >>> 3;
+	}
+	
+	// Only the first count bytes of mask
+	static long before(long mask, int count) {
+		return count < 8 ? mask & ((1L << (count << 3)) - 1) : mask;
+	}
+}
@@ -0,0 +1,28 @@
+package miniJava;
+
+import java.io.PrintStream;
+
+// Prints diagnostics one per line as they are reported, after a header
+//  line printed before the first one
+public class TextDiagnosticSink implements DiagnosticSink {
+	private PrintStream _out;
+	private String _header;
+	
+	public TextDiagnosticSink(PrintStream out) {
+		this(out, null);
+	}
+	
+	public TextDiagnosticSink(PrintStream out, String header) {
+		this._out = out;
+		this._header = header;
+	}
+	
+	@Override
+	public void report(Diagnostic diagnostic) {
+		if (this._header != null) {
+			this._out.println(this._header);
+			this._header = null;
+		}
+		this._out.println(diagnostic);
+	}
+}